@@ -275,6 +275,17 @@ CREATE TABLE `akdemia_requirement` (
 
 -- --------------------------------------------------------
 
+--
+-- Structure de la table `akdemia_resource_version`
+--
+
+CREATE TABLE `akdemia_resource_version` (
+  `TABLE_NAME` varchar(64) NOT NULL,
+  `VERSION` bigint(20) NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=latin1 COLLATE=latin1_swedish_ci;
+
+-- --------------------------------------------------------
+
 --
 -- Structure de la table `akdemia_role`
 --
@@ -576,7 +587,8 @@ ALTER TABLE `akdemia_employee`
 ALTER TABLE `akdemia_employee_souscription`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_INTRA_SESSION_FK` (`ID_AKDEMIA_INTRA_SESSION`),
-  ADD KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`);
+  ADD KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`),
+  ADD KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_evaluation`
@@ -585,7 +597,8 @@ ALTER TABLE `akdemia_evaluation`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_EVALUATION_AKDEMIA_SESSION_FK` (`ID_AKDEMIA_SESSION`),
   ADD KEY `AKDEMIA_EVALUATION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`),
-  ADD KEY `AKDEMIA_EVALUATION_AKDEMIA_PARTICULAR1_FK` (`ID_AKDEMIA_PARTICULAR`);
+  ADD KEY `AKDEMIA_EVALUATION_AKDEMIA_PARTICULAR1_FK` (`ID_AKDEMIA_PARTICULAR`),
+  ADD KEY `AKDEMIA_EVALUATION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_inter_session`
@@ -618,7 +631,8 @@ ALTER TABLE `akdemia_particular`
 ALTER TABLE `akdemia_particular_souscription`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_INTER_SESSION_FK` (`ID_AKDEMIA_INTER_SESSION`),
-  ADD KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_PARTICULAR0_FK` (`ID_AKDEMIA_PARTICULAR`);
+  ADD KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_PARTICULAR0_FK` (`ID_AKDEMIA_PARTICULAR`),
+  ADD KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_planification`
@@ -626,7 +640,8 @@ ALTER TABLE `akdemia_particular_souscription`
 ALTER TABLE `akdemia_planification`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_PLANIFICATION_AKDEMIA_COMPANY_FK` (`ID_AKDEMIA_COMPANY`),
-  ADD KEY `AKDEMIA_PLANIFICATION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`);
+  ADD KEY `AKDEMIA_PLANIFICATION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`),
+  ADD KEY `AKDEMIA_PLANIFICATION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_privilege`
@@ -640,13 +655,21 @@ ALTER TABLE `akdemia_privilege`
 -- Index pour la table `akdemia_requirement`
 --
 ALTER TABLE `akdemia_requirement`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_REQUIREMENT_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
+
+--
+-- Index pour la table `akdemia_resource_version`
+--
+ALTER TABLE `akdemia_resource_version`
+  ADD PRIMARY KEY (`TABLE_NAME`);
 
 --
 -- Index pour la table `akdemia_role`
 --
 ALTER TABLE `akdemia_role`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_ROLE_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_session`
@@ -654,25 +677,33 @@ ALTER TABLE `akdemia_role`
 ALTER TABLE `akdemia_session`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_SESSION_AKDEMIA_TRAINER_FK` (`ID_AKDEMIA_TRAINER`),
-  ADD KEY `AKDEMIA_SESSION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`);
+  ADD KEY `AKDEMIA_SESSION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`),
+  ADD KEY `AKDEMIA_SESSION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`),
+  ADD KEY `AKDEMIA_SESSION_DATE_IDX` (`DATE`,`ID`),
+  ADD KEY `AKDEMIA_SESSION_STATUS_DATE_IDX` (`STATUS`,`DATE`,`ID`),
+  ADD KEY `AKDEMIA_SESSION_TRAINER_DATE_IDX` (`ID_AKDEMIA_TRAINER`,`DATE`,`ID`),
+  ADD KEY `AKDEMIA_SESSION_TRAINING_DATE_IDX` (`ID_AKDEMIA_TRAINING`,`DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_sub_theme`
 --
 ALTER TABLE `akdemia_sub_theme`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_SUB_THEME_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_test`
 --
 ALTER TABLE `akdemia_test`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_TEST_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_theme`
 --
 ALTER TABLE `akdemia_theme`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_THEME_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_trainer`
@@ -686,13 +717,16 @@ ALTER TABLE `akdemia_trainer`
 --
 ALTER TABLE `akdemia_training`
   ADD PRIMARY KEY (`ID`),
-  ADD KEY `AKDEMIA_TRAINING_AKDEMIA_REQUIREMENT_FK` (`ID_AKDEMIA_REQUIREMENT`);
+  ADD KEY `AKDEMIA_TRAINING_AKDEMIA_REQUIREMENT_FK` (`ID_AKDEMIA_REQUIREMENT`),
+  ADD KEY `AKDEMIA_TRAINING_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_user`
 --
 ALTER TABLE `akdemia_user`
-  ADD PRIMARY KEY (`ID`);
+  ADD PRIMARY KEY (`ID`),
+  ADD KEY `AKDEMIA_USER_EMAIL_IDX` (`EMAIL`),
+  ADD KEY `AKDEMIA_USER_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `akdemia_validation_test`
@@ -700,7 +734,8 @@ ALTER TABLE `akdemia_user`
 ALTER TABLE `akdemia_validation_test`
   ADD PRIMARY KEY (`ID`),
   ADD KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TRAINING_FK` (`ID_AKDEMIA_TRAINING`),
-  ADD KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TEST0_FK` (`ID_AKDEMIA_TEST`);
+  ADD KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TEST0_FK` (`ID_AKDEMIA_TEST`),
+  ADD KEY `AKDEMIA_VALIDATION_TEST_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`);
 
 --
 -- Index pour la table `compose`
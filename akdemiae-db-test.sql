@@ -71,7 +71,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_employee_souscription` (
   `ID_AKDEMIA_EMPLOYEE` int(11) NOT NULL,
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_INTRA_SESSION_FK` (`ID_AKDEMIA_INTRA_SESSION`),
-  KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`)
+  KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`),
+  KEY `AKDEMIA_EMPLOYEE_SOUSCRIPTION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -93,7 +94,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_evaluation` (
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_EVALUATION_AKDEMIA_SESSION_FK` (`ID_AKDEMIA_SESSION`),
   KEY `AKDEMIA_EVALUATION_AKDEMIA_EMPLOYEE0_FK` (`ID_AKDEMIA_EMPLOYEE`),
-  KEY `AKDEMIA_EVALUATION_AKDEMIA_PARTICULAR1_FK` (`ID_AKDEMIA_PARTICULAR`)
+  KEY `AKDEMIA_EVALUATION_AKDEMIA_PARTICULAR1_FK` (`ID_AKDEMIA_PARTICULAR`),
+  KEY `AKDEMIA_EVALUATION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -172,7 +174,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_particular_souscription` (
   `ID_AKDEMIA_PARTICULAR` int(11) NOT NULL,
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_INTER_SESSION_FK` (`ID_AKDEMIA_INTER_SESSION`),
-  KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_PARTICULAR0_FK` (`ID_AKDEMIA_PARTICULAR`)
+  KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_AKDEMIA_PARTICULAR0_FK` (`ID_AKDEMIA_PARTICULAR`),
+  KEY `AKDEMIA_PARTICULAR_SOUSCRIPTION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -192,7 +195,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_planification` (
   `ID_AKDEMIA_TRAINING` int(11) NOT NULL,
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_PLANIFICATION_AKDEMIA_COMPANY_FK` (`ID_AKDEMIA_COMPANY`),
-  KEY `AKDEMIA_PLANIFICATION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`)
+  KEY `AKDEMIA_PLANIFICATION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`),
+  KEY `AKDEMIA_PLANIFICATION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -227,7 +231,21 @@ CREATE TABLE IF NOT EXISTS `akdemia_requirement` (
   `LINK` text DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_REQUIREMENT_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `akdemia_resource_version`
+--
+
+DROP TABLE IF EXISTS `akdemia_resource_version`;
+CREATE TABLE IF NOT EXISTS `akdemia_resource_version` (
+  `TABLE_NAME` varchar(64) NOT NULL,
+  `VERSION` bigint(20) NOT NULL DEFAULT 0,
+  PRIMARY KEY (`TABLE_NAME`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -242,7 +260,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_role` (
   `ROLE_NAME` varchar(100) DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_ROLE_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -268,7 +287,12 @@ CREATE TABLE IF NOT EXISTS `akdemia_session` (
   `ID_AKDEMIA_TRAINING` int(11) DEFAULT NULL,
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_SESSION_AKDEMIA_TRAINER_FK` (`ID_AKDEMIA_TRAINER`),
-  KEY `AKDEMIA_SESSION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`)
+  KEY `AKDEMIA_SESSION_AKDEMIA_TRAINING0_FK` (`ID_AKDEMIA_TRAINING`),
+  KEY `AKDEMIA_SESSION_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`),
+  KEY `AKDEMIA_SESSION_DATE_IDX` (`DATE`,`ID`),
+  KEY `AKDEMIA_SESSION_STATUS_DATE_IDX` (`STATUS`,`DATE`,`ID`),
+  KEY `AKDEMIA_SESSION_TRAINER_DATE_IDX` (`ID_AKDEMIA_TRAINER`,`DATE`,`ID`),
+  KEY `AKDEMIA_SESSION_TRAINING_DATE_IDX` (`ID_AKDEMIA_TRAINING`,`DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -284,7 +308,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_sub_theme` (
   `DESCRIPTION` text DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_SUB_THEME_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -300,7 +325,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_test` (
   `DESCRITION` text DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_TEST_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -316,7 +342,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_theme` (
   `DESCRIPTION` text DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_THEME_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -355,7 +382,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_training` (
   `UPDATE_DATE` datetime DEFAULT NULL,
   `ID_AKDEMIA_REQUIREMENT` int(11) DEFAULT NULL,
   PRIMARY KEY (`ID`),
-  KEY `AKDEMIA_TRAINING_AKDEMIA_REQUIREMENT_FK` (`ID_AKDEMIA_REQUIREMENT`)
+  KEY `AKDEMIA_TRAINING_AKDEMIA_REQUIREMENT_FK` (`ID_AKDEMIA_REQUIREMENT`),
+  KEY `AKDEMIA_TRAINING_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -375,7 +403,9 @@ CREATE TABLE IF NOT EXISTS `akdemia_user` (
   `PHOTO` varchar(100) DEFAULT NULL,
   `CREATION_DATE` datetime DEFAULT NULL,
   `UPDATE_DATE` datetime DEFAULT NULL,
-  PRIMARY KEY (`ID`)
+  PRIMARY KEY (`ID`),
+  KEY `AKDEMIA_USER_EMAIL_IDX` (`EMAIL`),
+  KEY `AKDEMIA_USER_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -395,7 +425,8 @@ CREATE TABLE IF NOT EXISTS `akdemia_validation_test` (
   `ID_AKDEMIA_TEST` int(11) NOT NULL,
   PRIMARY KEY (`ID`),
   KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TRAINING_FK` (`ID_AKDEMIA_TRAINING`),
-  KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TEST0_FK` (`ID_AKDEMIA_TEST`)
+  KEY `AKDEMIA_VALIDATION_TEST_AKDEMIA_TEST0_FK` (`ID_AKDEMIA_TEST`),
+  KEY `AKDEMIA_VALIDATION_TEST_CREATION_DATE_IDX` (`CREATION_DATE`,`ID`)
 ) ENGINE=InnoDB DEFAULT CHARSET=latin1;
 
 -- --------------------------------------------------------
@@ -0,0 +1,99 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Login throughput benchmark for {@code POST /users/generateToken}.
+ * <p>
+ * Runs against a started web service with the JDK only:
+ *
+ * <pre>
+ * java bench/LoginBenchmark.java --url http://localhost:8090/api --email johndoe@gmail.com --password secret \
+ *     --concurrency 32 --requests 2000 --warmup 200
+ * </pre>
+ *
+ * It reports the number of logins per second and the p50, p90, p99 and max
+ * latencies of the measured requests. Failed logins are counted and excluded
+ * from the latency figures.
+ */
+public class LoginBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = parse(args);
+		String url = options.getOrDefault("url", "http://localhost:8090/api") + "/users/generateToken";
+		String body = "{\"email\":\"" + options.getOrDefault("email", "johndoe@gmail.com") + "\",\"password\":\""
+				+ options.getOrDefault("password", "password") + "\"}";
+		int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+		int requests = Integer.parseInt(options.getOrDefault("requests", "2000"));
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "200"));
+
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30))
+				.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body)).build();
+
+		run(client, request, concurrency, warmup, new long[warmup], new AtomicInteger());
+
+		long[] latencies = new long[requests];
+		AtomicInteger failures = new AtomicInteger();
+		long start = System.nanoTime();
+		run(client, request, concurrency, requests, latencies, failures);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long[] succeeded = Arrays.stream(latencies).filter(latency -> latency > 0).sorted().toArray();
+		System.out.printf("requests=%d concurrency=%d failures=%d duration=%.2fs%n", requests, concurrency,
+				failures.get(), seconds);
+		System.out.printf("logins/sec=%.1f%n", succeeded.length / seconds);
+		if (succeeded.length > 0) {
+			System.out.printf("p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%n", percentile(succeeded, 50),
+					percentile(succeeded, 90), percentile(succeeded, 99), succeeded[succeeded.length - 1] / 1e6);
+		}
+	}
+
+	private static void run(HttpClient client, HttpRequest request, int concurrency, int count, long[] latencies,
+			AtomicInteger failures) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		AtomicInteger next = new AtomicInteger();
+		for (int i = 0; i < concurrency; i++) {
+			executor.execute(() -> {
+				int index;
+				while ((index = next.getAndIncrement()) < count) {
+					long begin = System.nanoTime();
+					try {
+						HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+						if (response.statusCode() == 200) {
+							latencies[index] = System.nanoTime() - begin;
+						} else {
+							failures.incrementAndGet();
+						}
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.HOURS);
+	}
+
+	private static double percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+	}
+
+	private static Map<String, String> parse(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+		}
+		return options;
+	}
+}
@@ -1,10 +1,18 @@
 package af.cmr.indyli.akdemia.ws.config;
 
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -14,9 +22,18 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
-import af.cmr.indyli.akdemia.business.service.IUserService;
+import af.cmr.indyli.akdemia.ws.service.AuthorityRegistry;
+import af.cmr.indyli.akdemia.ws.service.BoundedPasswordEncoder;
 import af.cmr.indyli.akdemia.ws.service.JwtAuthFilter;
+import af.cmr.indyli.akdemia.ws.service.RequireAuthority;
+import af.cmr.indyli.akdemia.ws.service.RequireAuthorityAuthorizationManager;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Security configuration class for Akdemia Web Services.
@@ -27,21 +44,23 @@ import af.cmr.indyli.akdemia.ws.service.JwtAuthFilter;
 public class SecurityConfig {
 
     private final JwtAuthFilter authFilter;
-    private final IUserService userDetailsService;
+    private final UserDetailsCache userDetailsService;
 
     /**
      * Constructor to initialize the SecurityConfig class.
      *
      * @param authFilter       JwtAuthFilter instance for JWT authentication.
-     * @param userDetailsService IUserService instance for user details service.
+     * @param userDetailsService UserDetailsCache instance for cached user details service.
      */
-    public SecurityConfig(JwtAuthFilter authFilter, IUserService userDetailsService) {
+    public SecurityConfig(JwtAuthFilter authFilter, UserDetailsCache userDetailsService) {
         this.authFilter = authFilter;
         this.userDetailsService = userDetailsService;
     }
 
     /**
-     * Configures the security filter chain for HTTP requests.
+     * Configures the security filter chain for HTTP requests. CORS is handled
+     * here for the whole API, so that preflight requests are answered before
+     * any authentication work.
      *
      * @param http HttpSecurity instance for configuring security.
      * @return SecurityFilterChain for the specified HTTP security configuration.
@@ -50,31 +69,74 @@ public class SecurityConfig {
     @Bean
     SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http.csrf(AbstractHttpConfigurer::disable)
-                .authorizeHttpRequests((request) -> request.requestMatchers("/users/generateToken", "/users/register",
-                        "/users/resetpwd/**", "/swagger-ui/**", "/error/**").permitAll().anyRequest().permitAll())
+                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                .authorizeHttpRequests((request) -> request.requestMatchers(AkdemiaUrlBase.publicPaths).permitAll()
+                        .anyRequest().permitAll())
                 .addFilterBefore(authFilter, UsernamePasswordAuthenticationFilter.class).build();
     }
 
     /**
-     * Creates a bean for PasswordEncoder.
+     * Creates the CORS configuration shared by every controller.
      *
-     * @return BCryptPasswordEncoder bean instance.
+     * @return CorsConfigurationSource bean instance.
      */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    CorsConfigurationSource corsConfigurationSource() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.addAllowedOriginPattern(AkdemiaUrlBase.url);
+        configuration.addAllowedMethod(CorsConfiguration.ALL);
+        configuration.addAllowedHeader(CorsConfiguration.ALL);
+        configuration.setMaxAge((long) AkdemiaUrlBase.maxAge);
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+        return source;
+    }
+
+    /**
+     * Keeps the JwtAuthFilter out of the servlet container filters: it only runs
+     * inside the security filter chain, after the CORS handling.
+     *
+     * @param authFilter JwtAuthFilter instance for JWT authentication.
+     * @return Disabled FilterRegistrationBean for the JwtAuthFilter.
+     */
+    @Bean
+    FilterRegistrationBean<JwtAuthFilter> jwtAuthFilterRegistration(JwtAuthFilter authFilter) {
+        FilterRegistrationBean<JwtAuthFilter> registration = new FilterRegistrationBean<>(authFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * Creates a bean for PasswordEncoder. BCrypt runs on its own bounded pool of
+     * threads so that login bursts do not starve the request threads.
+     *
+     * @param threads       Number of threads hashing passwords.
+     * @param queueCapacity Maximum number of password operations waiting for a thread.
+     * @param maxWaitMillis Maximum time a password operation may wait for a thread.
+     * @param meterRegistry MeterRegistry receiving the pool metrics.
+     * @return BoundedPasswordEncoder bean instance delegating to BCryptPasswordEncoder.
+     */
+    @Bean
+    PasswordEncoder passwordEncoder(
+            @Value("${akdemia.application.security.password-encoder.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${akdemia.application.security.password-encoder.queue-capacity:64}") int queueCapacity,
+            @Value("${akdemia.application.security.password-encoder.max-wait-millis:2000}") long maxWaitMillis,
+            MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, maxWaitMillis,
+                meterRegistry);
     }
 
     /**
      * Creates a bean for AuthenticationProvider.
      *
+     * @param passwordEncoder PasswordEncoder checking the passwords.
      * @return DaoAuthenticationProvider bean instance.
      */
     @Bean
-    AuthenticationProvider authenticationProvider() {
+    AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
         authenticationProvider.setUserDetailsService(userDetailsService);
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
         return authenticationProvider;
     }
 
@@ -89,4 +151,31 @@ public class SecurityConfig {
     AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
+
+    /**
+     * Creates a bean for AuthorityRegistry, giving each authority its bit.
+     *
+     * @return AuthorityRegistry bean instance.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static AuthorityRegistry authorityRegistry() {
+        return new AuthorityRegistry();
+    }
+
+    /**
+     * Creates the method interceptor enforcing {@link RequireAuthority} on
+     * controllers and controller methods with constant time bit tests.
+     *
+     * @param authorityRegistry AuthorityRegistry giving each authority its bit.
+     * @return Advisor bean instance.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requireAuthorityAdvisor(AuthorityRegistry authorityRegistry) {
+        ComposablePointcut pointcut = new ComposablePointcut(
+                new AnnotationMatchingPointcut(RequireAuthority.class, true)).union(new AnnotationMatchingPointcut(null, RequireAuthority.class, true));
+        return new AuthorizationManagerBeforeMethodInterceptor(pointcut,
+                new RequireAuthorityAuthorizationManager(authorityRegistry));
+    }
 }
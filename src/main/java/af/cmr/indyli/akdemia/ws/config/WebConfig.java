@@ -0,0 +1,46 @@
+package af.cmr.indyli.akdemia.ws.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import af.cmr.indyli.akdemia.business.dto.basic.TrainingBasicDTO;
+import af.cmr.indyli.akdemia.business.dto.full.TrainingFullDTO;
+import af.cmr.indyli.akdemia.ws.dto.TrainingLogoMixin;
+import af.cmr.indyli.akdemia.ws.service.ConditionalGetInterceptor;
+
+/**
+ * Spring MVC configuration of the web service.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+	private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+	/**
+	 * Constructor to initialize the WebConfig.
+	 *
+	 * @param conditionalGetInterceptor ConditionalGetInterceptor answering the conditional GET requests.
+	 */
+	public WebConfig(ConditionalGetInterceptor conditionalGetInterceptor) {
+		this.conditionalGetInterceptor = conditionalGetInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(conditionalGetInterceptor);
+	}
+
+	/**
+	 * Keeps the base64 logos out of the JSON representations of the trainings.
+	 *
+	 * @return Jackson2ObjectMapperBuilderCustomizer registering the mix-ins.
+	 */
+	@Bean
+	public Jackson2ObjectMapperBuilderCustomizer trainingLogoMixins() {
+		return builder -> builder.mixIn(TrainingBasicDTO.class, TrainingLogoMixin.class)
+				.mixIn(TrainingFullDTO.class, TrainingLogoMixin.class);
+	}
+}
@@ -0,0 +1,66 @@
+package af.cmr.indyli.akdemia.ws.controller;
+
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor.BatchTooLargeException;
+import af.cmr.indyli.akdemia.ws.service.BoundedPasswordEncoder.PasswordEncoderSaturatedException;
+import af.cmr.indyli.akdemia.ws.service.EmployeeImportService.InvalidImportException;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService.InvalidQueryException;
+
+/**
+ * Translates the exceptions raised by the web service layer into HTTP responses.
+ */
+@RestControllerAdvice
+public class AkdemiaWsExceptionHandler {
+
+	/**
+	 * Answers 503 with a Retry-After header when the password encoder is saturated.
+	 *
+	 * @param e The exception raised by the password encoder.
+	 * @return ResponseEntity containing the error message.
+	 */
+	@ExceptionHandler(PasswordEncoderSaturatedException.class)
+	public ResponseEntity<Map<String, String>> handlePasswordEncoderSaturated(PasswordEncoderSaturatedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+				.body(Map.of("error", e.getMessage()));
+	}
+
+	/**
+	 * Answers 400 when the parameters of a collection query are invalid.
+	 *
+	 * @param e The exception raised while building the query.
+	 * @return ResponseEntity containing the error message.
+	 */
+	@ExceptionHandler(InvalidQueryException.class)
+	public ResponseEntity<Map<String, String>> handleInvalidQuery(InvalidQueryException e) {
+		return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+	}
+
+	/**
+	 * Answers 413 when a batch request holds too many items.
+	 *
+	 * @param e The exception raised by the batch executor.
+	 * @return ResponseEntity containing the error message.
+	 */
+	@ExceptionHandler(BatchTooLargeException.class)
+	public ResponseEntity<Map<String, String>> handleBatchTooLarge(BatchTooLargeException e) {
+		return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+	}
+
+	/**
+	 * Answers 400 when a file cannot be imported at all.
+	 *
+	 * @param e The exception raised by the import.
+	 * @return ResponseEntity containing the error message.
+	 */
+	@ExceptionHandler(InvalidImportException.class)
+	public ResponseEntity<Map<String, String>> handleInvalidImport(InvalidImportException e) {
+		return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+	}
+}
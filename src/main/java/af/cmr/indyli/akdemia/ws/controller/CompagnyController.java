@@ -1,10 +1,14 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +16,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.CompanyBasicDTO;
@@ -19,20 +24,49 @@ import af.cmr.indyli.akdemia.business.dto.full.CompanyFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ICompanyService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.CompanyDashboardDTO;
+import af.cmr.indyli.akdemia.ws.dto.ImportReportDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.CompanyDashboardService;
+import af.cmr.indyli.akdemia.ws.service.EmployeeImportService;
+import af.cmr.indyli.akdemia.ws.service.RequireAuthority;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 
 /**
  * RESTful controller to manage company-related operations.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/companies")
 public class CompagnyController {
 
+	private final UserDetailsCache userDetailsCache;
+	private final ResourceQueryService resourceQueryService;
+	private final EmployeeImportService employeeImportService;
+	private final CompanyDashboardService companyDashboardService;
+
 	@Resource(name = ConstsValues.ServiceKeys.COMPANY_SERVICE_KEY)
 	private ICompanyService companyService;
 
+	/**
+	 * Constructor for CompagnyController.
+	 *
+	 * @param userDetailsCache Cache of the authenticated users, evicted on writes.
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of companies.
+	 * @param employeeImportService EmployeeImportService importing the employees of the companies.
+	 * @param companyDashboardService CompanyDashboardService assembling the dashboards of the companies.
+	 */
+	public CompagnyController(UserDetailsCache userDetailsCache, ResourceQueryService resourceQueryService,
+			EmployeeImportService employeeImportService, CompanyDashboardService companyDashboardService) {
+		this.companyDashboardService = companyDashboardService;
+		this.employeeImportService = employeeImportService;
+		this.resourceQueryService = resourceQueryService;
+		this.userDetailsCache = userDetailsCache;
+	}
+
 	/**
 	 * Retrieve a list of all companies.
 	 *
@@ -43,6 +77,35 @@ public class CompagnyController {
 		return ResponseEntity.ok(ResponseEntity.ok(companyService.findAll()).getBody());
 	}
 
+	/**
+	 * Retrieve a page of companies, in keyset order.
+	 *
+	 * @param limit  Maximum number of companies in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of companies and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.COMPANIES, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the companies.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of companies.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.COMPANIES, fields));
+	}
+
 	/**
 	 * Retrieve information about a company by its identifier.
 	 *
@@ -55,6 +118,33 @@ public class CompagnyController {
 		return ResponseEntity.ok(companyService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a company by its identifier.
+	 *
+	 * @param id     The identifier of the company.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the company.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.COMPANIES, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
+	/**
+	 * Retrieve the dashboard of a company: its employees, planifications,
+	 * intra-company sessions, employee subscriptions and evaluation averages.
+	 *
+	 * @param id The identifier of the company.
+	 * @return ResponseEntity containing the dashboard, listing the sections that
+	 *         could not be read in time.
+	 */
+	@GetMapping("/{id}/dashboard")
+	public ResponseEntity<CompanyDashboardDTO> getDashboard(@PathVariable int id) {
+		CompanyDashboardDTO dashboard = companyDashboardService.getDashboard(id);
+		return dashboard == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(dashboard);
+	}
+
 	/**
 	 * Create a new company.
 	 *
@@ -80,20 +170,49 @@ public class CompagnyController {
 	@PutMapping("/{id}")
 	public ResponseEntity<CompanyFullDTO> update(@PathVariable int id, @RequestBody CompanyFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(companyService.update(dto));
+		String previousEmail = userDetailsCache.evictUser(id);
+		CompanyFullDTO updated = companyService.update(dto);
+		userDetailsCache.evictUser(id, previousEmail);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
-	 * Delete a company by its identifier.
+	 * Delete a company by its identifier. Reserved to the administrators.
 	 *
 	 * @param id The identifier of the company to delete.
 	 * @return ResponseEntity indicating the success of the deletion.
 	 * @throws AkdemiaBusinessException If a business exception occurs.
 	 * @throws AccessDeniedException    If access is denied.
 	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		String previousEmail = userDetailsCache.evictUser(id);
 		companyService.deleteById(id);
+		userDetailsCache.evictUser(id, previousEmail);
 		return ResponseEntity.ok().build();
 	}
+
+	/**
+	 * Import the employees of a company from a CSV file sent as the body of the
+	 * request. The file is read and written by batches as it is received, and
+	 * the rows are validated one by one. Reserved to the administrators.
+	 *
+	 * @param id        The identifier of the company.
+	 * @param delimiter The character separating the fields, {@code ,} by default.
+	 * @param request   The request, whose body is the file.
+	 * @return ResponseEntity containing the report of the import, with the
+	 *         errors of the rejected rows.
+	 * @throws IOException If the file cannot be read.
+	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
+	@PostMapping(value = "/{id}/employees/import", consumes = { "text/csv", MediaType.TEXT_PLAIN_VALUE })
+	public ResponseEntity<ImportReportDTO> importEmployees(@PathVariable int id,
+			@RequestParam(defaultValue = ",") char delimiter, HttpServletRequest request) throws IOException {
+		Charset charset = request.getCharacterEncoding() == null ? StandardCharsets.UTF_8
+				: Charset.forName(request.getCharacterEncoding());
+		ImportReportDTO report = employeeImportService.importEmployees(id, request.getInputStream(), charset,
+				delimiter);
+		return report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report);
+	}
 }
@@ -1,10 +1,12 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,36 +14,120 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.full.EmployeeFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IEmployeeService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+import af.cmr.indyli.akdemia.ws.dto.EmployeeListDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor.InvalidItemException;
+import af.cmr.indyli.akdemia.ws.service.EmployeeQueryService;
+import af.cmr.indyli.akdemia.ws.service.RequireAuthority;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to employees.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/employees")
 public class EmployeeController {
 
+	private final UserDetailsCache userDetailsCache;
+	private final ResourceQueryService resourceQueryService;
+	private final BatchExecutor batchExecutor;
+	private final EmployeeQueryService employeeQueryService;
+
 	@Resource(name = ConstsValues.ServiceKeys.EMPLOYEE_SERVICE_KEY)
 	private IEmployeeService employeeService;
 
 	/**
-	 * Retrieve the list of all employees.
+	 * Constructor for EmployeeController.
+	 *
+	 * @param userDetailsCache Cache of the authenticated users, evicted on writes.
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of employees.
+	 * @param batchExecutor BatchExecutor running the batch requests.
+	 * @param employeeQueryService EmployeeQueryService listing the employees.
+	 */
+	public EmployeeController(UserDetailsCache userDetailsCache, ResourceQueryService resourceQueryService,
+			BatchExecutor batchExecutor, EmployeeQueryService employeeQueryService) {
+		this.employeeQueryService = employeeQueryService;
+		this.batchExecutor = batchExecutor;
+		this.resourceQueryService = resourceQueryService;
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	/**
+	 * Retrieve the list of all employees, with the name of their company. Their
+	 * whole graph is returned by {@link #getOne(int)}, or with
+	 * {@code expand=full}.
 	 *
 	 * @return ResponseEntity containing the list of employees.
 	 */
 	@GetMapping
-	public ResponseEntity<List<EmployeeFullDTO>> getAll() {
+	public ResponseEntity<List<EmployeeListDTO>> getAll() {
+		return ResponseEntity.ok(employeeQueryService.findAll());
+	}
+
+	/**
+	 * Retrieve the list of all employees with their company and subscriptions.
+	 *
+	 * @return ResponseEntity containing the list of employees.
+	 */
+	@GetMapping(params = { "expand=full", "!limit", "!fields" })
+	public ResponseEntity<List<EmployeeFullDTO>> getAllFull() {
 		return ResponseEntity.ok(employeeService.findAllFull());
 	}
 
+	/**
+	 * Retrieve a page of employees, in keyset order.
+	 *
+	 * @param limit  Maximum number of employees in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of employees and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.EMPLOYEES, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the employees.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of employees.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.EMPLOYEES, fields));
+	}
+
+	/**
+	 * Stream all the employees as NDJSON, one employee per line.
+	 *
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity streaming the employees as they are read.
+	 */
+	@GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(resourceQueryService.stream(ResourceTables.EMPLOYEES, fields));
+	}
+
 	/**
 	 * Retrieve information about an employee by their identifier.
 	 *
@@ -54,6 +140,19 @@ public class EmployeeController {
 		return ResponseEntity.ok(employeeService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of an employee by its identifier.
+	 *
+	 * @param id     The identifier of the employee.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the employee.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.EMPLOYEES, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new employee.
 	 *
@@ -79,11 +178,14 @@ public class EmployeeController {
 	@PutMapping("/{id}")
 	public ResponseEntity<EmployeeFullDTO> update(@PathVariable int id, @RequestBody EmployeeFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(employeeService.update(dto));
+		String previousEmail = userDetailsCache.evictUser(id);
+		EmployeeFullDTO updated = employeeService.update(dto);
+		userDetailsCache.evictUser(id, previousEmail);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
-	 * Delete an employee by their identifier.
+	 * Delete an employee by their identifier. Reserved to the administrators.
 	 *
 	 * @param id The identifier of the employee to delete.
 	 * @return ResponseEntity with an empty body indicating the employee has been
@@ -91,9 +193,74 @@ public class EmployeeController {
 	 * @throws AkdemiaBusinessException If a business exception occurs.
 	 * @throws AccessDeniedException    If access is denied.
 	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		String previousEmail = userDetailsCache.evictUser(id);
 		employeeService.deleteById(id);
+		userDetailsCache.evictUser(id, previousEmail);
 		return ResponseEntity.ok().build();
 	}
+
+	/**
+	 * Create several employees at once, e.g. when onboarding a company. The
+	 * employees are persisted in chunks sharing a transaction and each one gets
+	 * its own result. Each employee is still inserted by its own statement, the
+	 * identifiers being generated by the database. Reserved to the
+	 * administrators.
+	 *
+	 * @param dtos Information about the employees to create.
+	 * @return ResponseEntity containing the result of each employee, in the order
+	 *         of the request.
+	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
+	@PostMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<EmployeeFullDTO>>> createBatch(@RequestBody List<EmployeeFullDTO> dtos) {
+		return ResponseEntity.ok(batchExecutor.execute(dtos, employeeService::create));
+	}
+
+	/**
+	 * Update several employees at once, each one being identified by its
+	 * {@code id}. An employee without {@code id} is rejected with a 400.
+	 * Reserved to the administrators.
+	 *
+	 * @param dtos The new information about the employees.
+	 * @return ResponseEntity containing the result of each employee, in the order
+	 *         of the request.
+	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
+	@PutMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<EmployeeFullDTO>>> updateBatch(@RequestBody List<EmployeeFullDTO> dtos) {
+		Map<Integer, String> previousEmails = new HashMap<>();
+		List<BatchResultDTO<EmployeeFullDTO>> results = batchExecutor.execute(dtos, dto -> {
+			if (dto.getId() == null) {
+				throw new InvalidItemException("Missing id");
+			}
+			previousEmails.put(dto.getId(), userDetailsCache.evictUser(dto.getId()));
+			return employeeService.update(dto);
+		});
+		// evicted again once the chunks are committed
+		previousEmails.forEach(userDetailsCache::evictUser);
+		return ResponseEntity.ok(results);
+	}
+
+	/**
+	 * Delete several employees at once. Reserved to the administrators.
+	 *
+	 * @param ids The identifiers of the employees to delete.
+	 * @return ResponseEntity containing the result of each deletion, in the order
+	 *         of the request.
+	 */
+	@RequireAuthority(UserController.ADMIN_AUTHORITY)
+	@DeleteMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<Void>>> deleteBatch(@RequestBody List<Integer> ids) {
+		Map<Integer, String> previousEmails = new HashMap<>();
+		List<BatchResultDTO<Void>> results = batchExecutor.execute(ids, id -> {
+			previousEmails.put(id, userDetailsCache.evictUser(id));
+			employeeService.deleteById(id);
+			return null;
+		});
+		previousEmails.forEach(userDetailsCache::evictUser);
+		return ResponseEntity.ok(results);
+	}
 }
@@ -1,9 +1,14 @@
 package af.cmr.indyli.akdemia.ws.controller;
 import java.nio.file.AccessDeniedException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,23 +16,53 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.basic.EmployeeSubscriptionBasicDTO;
 import af.cmr.indyli.akdemia.business.dto.full.EmployeeSubscriptionFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IEmployeeSubscriptionService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor.InvalidItemException;
+import af.cmr.indyli.akdemia.ws.service.LearningReadModel;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.SchedulingConflicts;
+import af.cmr.indyli.akdemia.ws.utils.ExportFormat;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/employeesubscriptions")
 public class EmployeeSubscriptionController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final BatchExecutor batchExecutor;
+	private final LearningReadModel learningReadModel;
+	private final SchedulingConflicts schedulingConflicts;
+
 	@Resource(name = ConstsValues.ServiceKeys.EMPLOYEE_SUBSCRIPTION_SERVICE_KEY)
 	private IEmployeeSubscriptionService employeeSubscriptionService;
+
+	/**
+	 * Constructor for EmployeeSubscriptionController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of employee subscriptions.
+	 * @param batchExecutor BatchExecutor running the batch requests.
+	 * @param learningReadModel LearningReadModel evicted on writes.
+	 * @param schedulingConflicts SchedulingConflicts reindexed on writes and telling the double bookings.
+	 */
+	public EmployeeSubscriptionController(ResourceQueryService resourceQueryService, BatchExecutor batchExecutor,
+			LearningReadModel learningReadModel, SchedulingConflicts schedulingConflicts) {
+		this.schedulingConflicts = schedulingConflicts;
+		this.learningReadModel = learningReadModel;
+		this.batchExecutor = batchExecutor;
+		this.resourceQueryService = resourceQueryService;
+	}
 	
 
 	/**
@@ -39,6 +74,79 @@ public class EmployeeSubscriptionController {
     public ResponseEntity<List<EmployeeSubscriptionBasicDTO>> getAll() {
         return ResponseEntity.ok(ResponseEntity.ok(employeeSubscriptionService.findAll()).getBody());
     }
+
+    /**
+     * Retrieve a page of employee subscriptions, in keyset order.
+     *
+     * @param limit  Maximum number of employee subscriptions in the page.
+     * @param after  Cursor of the page, as returned with the previous page.
+     * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+     *               with {@code -} for a descending order.
+     * @param fields Comma separated fields to return, all of them by default.
+     * @return ResponseEntity containing the page of employee subscriptions and the cursor of
+     *         the next page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity
+                .ok(resourceQueryService.page(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, limit, after, sort, fields));
+    }
+
+    /**
+     * Retrieve the requested fields of all the employee subscriptions.
+     *
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the list of employee subscriptions.
+     */
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, fields));
+    }
+
+    /**
+     * Stream all the employee subscriptions as NDJSON, one subscription per line.
+     *
+     * @param fields Comma separated fields to return, all of them by default.
+     * @return ResponseEntity streaming the employee subscriptions as they are read.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(resourceQueryService.stream(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, fields));
+    }
+
+    /**
+     * Export the employee subscriptions as a CSV or XLSX file, streamed from
+     * the database as the rows are read, optionally restricted to a period and
+     * to a company.
+     *
+     * @param format  Format of the export, {@code csv} (the default) or
+     *                {@code xlsx}.
+     * @param from    Creation date of the subscriptions from which the rows are
+     *                exported, included.
+     * @param to      Creation date of the subscriptions until which the rows are
+     *                exported, included.
+     * @param company Identifier of a company, to export the subscriptions of
+     *                its employees only.
+     * @param fields  Comma separated fields to export, all of them by default.
+     * @return ResponseEntity streaming the file.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer company, @RequestParam(required = false) String fields) {
+        ExportFormat exportFormat = ExportFormat.byExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("employeesubscriptions"))
+                .body(resourceQueryService.export(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, exportFormat, from, to,
+                        company, fields));
+    }
     
     /**
 	 * Retrieve information about a employeeSubscription by its identifier.
@@ -51,6 +159,19 @@ public class EmployeeSubscriptionController {
     public ResponseEntity<EmployeeSubscriptionFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
         return ResponseEntity.ok(employeeSubscriptionService.findById(id));
     }
+
+    /**
+     * Retrieve the requested fields of an employee subscription by its identifier.
+     *
+     * @param id     The identifier of the employee subscription.
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the requested fields of the employee subscription.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
     
     /**
 	 * Create a new employeeSubscription.
@@ -62,7 +183,12 @@ public class EmployeeSubscriptionController {
 	 */
     @PostMapping
     public ResponseEntity<EmployeeSubscriptionFullDTO> create(@RequestBody EmployeeSubscriptionFullDTO EmployeeSubscriptionDTO) throws AkdemiaBusinessException {
-    	return ResponseEntity.ok(employeeSubscriptionService.create(EmployeeSubscriptionDTO));
+        EmployeeSubscriptionFullDTO created = employeeSubscriptionService.create(EmployeeSubscriptionDTO);
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, List.of(created.getId()));
+        schedulingConflicts.reindexSubscriptions(List.of(created.getId()));
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSubscription(created.getId())))
+                .body(created);
     }
 
     /**
@@ -77,7 +203,13 @@ public class EmployeeSubscriptionController {
     @PutMapping("/{id}")
     public ResponseEntity<EmployeeSubscriptionFullDTO> update(@PathVariable("id") int id, @RequestBody EmployeeSubscriptionFullDTO employeeSubscriptionDTO) 
     		throws AccessDeniedException, AkdemiaBusinessException {
-    	return ResponseEntity.ok(employeeSubscriptionService.update(employeeSubscriptionDTO));
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS,
+                List.of(id));
+        EmployeeSubscriptionFullDTO updated = employeeSubscriptionService.update(employeeSubscriptionDTO);
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, List.of(id), previousOwners);
+        schedulingConflicts.reindexSubscriptions(List.of(id));
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSubscription(id))).body(updated);
     }
 
     /**
@@ -90,8 +222,76 @@ public class EmployeeSubscriptionController {
 	 */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
-    	employeeSubscriptionService.deleteById(id);
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS,
+                List.of(id));
+        employeeSubscriptionService.deleteById(id);
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, List.of(id), previousOwners);
+        schedulingConflicts.reindexSubscriptions(List.of(id));
         return ResponseEntity.ok().build();
     }
-	
+
+    /**
+     * Create several employee subscriptions at once. The employee subscriptions are persisted in chunks
+     * sharing a transaction and each one gets its own result.
+     *
+     * @param dtos Information about the employee subscriptions to create.
+     * @return ResponseEntity containing the result of each subscription, in the order
+     *         of the request.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<EmployeeSubscriptionFullDTO>>> createBatch(
+            @RequestBody List<EmployeeSubscriptionFullDTO> dtos) {
+        List<BatchResultDTO<EmployeeSubscriptionFullDTO>> results = batchExecutor.execute(dtos,
+                employeeSubscriptionService::create);
+        List<Integer> ids = results.stream().filter(result -> result.getBody() != null)
+                .map(result -> result.getBody().getId()).toList();
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, ids);
+        schedulingConflicts.reindexSubscriptions(ids);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Update several employee subscriptions at once, each one being identified by its
+     * {@code id}. An item without {@code id} is rejected with a 400.
+     *
+     * @param dtos The new information about the employee subscriptions.
+     * @return ResponseEntity containing the result of each subscription, in the order
+     *         of the request.
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<EmployeeSubscriptionFullDTO>>> updateBatch(
+            @RequestBody List<EmployeeSubscriptionFullDTO> dtos) {
+        List<Integer> ids = batchExecutor.idsOf(dtos, EmployeeSubscriptionFullDTO::getId);
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, ids);
+        List<BatchResultDTO<EmployeeSubscriptionFullDTO>> results = batchExecutor.execute(dtos, dto -> {
+            if (dto.getId() == null) {
+                throw new InvalidItemException("Missing id");
+            }
+            return employeeSubscriptionService.update(dto);
+        });
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, ids, previousOwners);
+        schedulingConflicts.reindexSubscriptions(
+                BatchExecutor.succeededIds(dtos, results, EmployeeSubscriptionFullDTO::getId));
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Delete several employee subscriptions at once.
+     *
+     * @param ids The identifiers of the employee subscriptions to delete.
+     * @return ResponseEntity containing the result of each deletion, in the
+     *         order of the request.
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<Void>>> deleteBatch(@RequestBody List<Integer> ids) {
+        List<Integer> requested = batchExecutor.idsOf(ids, Function.identity());
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, requested);
+        List<BatchResultDTO<Void>> results = batchExecutor.execute(ids, id -> {
+            employeeSubscriptionService.deleteById(id);
+            return null;
+        });
+        learningReadModel.evictOwners(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, requested, previousOwners);
+        schedulingConflicts.reindexSubscriptions(BatchExecutor.succeededIds(ids, results, Function.identity()));
+        return ResponseEntity.ok(results);
+    }
 }
@@ -1,10 +1,15 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,27 +17,57 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.basic.EvaluationBasicDTO;
 import af.cmr.indyli.akdemia.business.dto.full.EvaluationFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IEvaluationService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor.InvalidItemException;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.LearningReadModel;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.utils.ExportFormat;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to evaluations.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/evaluations")
 public class EvaluationController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final BatchExecutor batchExecutor;
+	private final LearningReadModel learningReadModel;
+	private final EvaluationStatistics evaluationStatistics;
+
 	@Resource(name = ConstsValues.ServiceKeys.EVALUATION_SERVICE_KEY)
 	private IEvaluationService evaluationService;
 
+	/**
+	 * Constructor for EvaluationController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of evaluations.
+	 * @param batchExecutor BatchExecutor running the batch requests.
+	 * @param learningReadModel LearningReadModel evicted on writes.
+	 * @param evaluationStatistics EvaluationStatistics updated on writes.
+	 */
+	public EvaluationController(ResourceQueryService resourceQueryService, BatchExecutor batchExecutor,
+			LearningReadModel learningReadModel, EvaluationStatistics evaluationStatistics) {
+		this.evaluationStatistics = evaluationStatistics;
+		this.learningReadModel = learningReadModel;
+		this.batchExecutor = batchExecutor;
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve the list of all evaluations.
 	 *
@@ -43,6 +78,77 @@ public class EvaluationController {
 		return ResponseEntity.ok(evaluationService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of evaluations, in keyset order.
+	 *
+	 * @param limit  Maximum number of evaluations in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of evaluations and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.EVALUATIONS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the evaluations.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of evaluations.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.EVALUATIONS, fields));
+	}
+
+	/**
+	 * Stream all the evaluations as NDJSON, one evaluation per line.
+	 *
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity streaming the evaluations as they are read.
+	 */
+	@GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(resourceQueryService.stream(ResourceTables.EVALUATIONS, fields));
+	}
+
+	/**
+	 * Export the evaluations as a CSV or XLSX file, streamed from the database
+	 * as the rows are read, optionally restricted to a period and to a company.
+	 *
+	 * @param format  Format of the export, {@code csv} (the default) or
+	 *                {@code xlsx}.
+	 * @param from    Creation date of the evaluations from which the rows are
+	 *                exported, included.
+	 * @param to      Creation date of the evaluations until which the rows are
+	 *                exported, included.
+	 * @param company Identifier of a company, to export the evaluations of its
+	 *                employees only.
+	 * @param fields  Comma separated fields to export, all of them by default.
+	 * @return ResponseEntity streaming the file.
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+			@RequestParam(required = false) Integer company, @RequestParam(required = false) String fields) {
+		ExportFormat exportFormat = ExportFormat.byExtension(format);
+		if (exportFormat == null) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok().contentType(exportFormat.getContentType())
+				.header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("evaluations"))
+				.body(resourceQueryService.export(ResourceTables.EVALUATIONS, exportFormat, from, to,
+						company, fields));
+	}
+
 	/**
 	 * Retrieve information about an evaluation by its identifier.
 	 *
@@ -55,6 +161,19 @@ public class EvaluationController {
 		return ResponseEntity.ok(evaluationService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of an evaluation by its identifier.
+	 *
+	 * @param id     The identifier of the evaluation.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the evaluation.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.EVALUATIONS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new evaluation.
 	 *
@@ -66,7 +185,10 @@ public class EvaluationController {
 	@PostMapping
 	public ResponseEntity<EvaluationFullDTO> create(@RequestBody EvaluationFullDTO dto)
 			throws AkdemiaBusinessException {
-		return ResponseEntity.ok(evaluationService.create(dto));
+		EvaluationFullDTO created = evaluationService.create(dto);
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, List.of(created.getId()));
+		evaluationStatistics.reindex(List.of(created.getId()));
+		return ResponseEntity.ok(created);
 	}
 
 	/**
@@ -81,7 +203,11 @@ public class EvaluationController {
 	@PutMapping("/{id}")
 	public ResponseEntity<EvaluationFullDTO> update(@PathVariable int id, @RequestBody EvaluationFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(evaluationService.update(dto));
+		List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EVALUATIONS, List.of(id));
+		EvaluationFullDTO updated = evaluationService.update(dto);
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, List.of(id), previousOwners);
+		evaluationStatistics.reindex(List.of(id));
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -95,7 +221,73 @@ public class EvaluationController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EVALUATIONS, List.of(id));
 		evaluationService.deleteById(id);
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, List.of(id), previousOwners);
+		evaluationStatistics.reindex(List.of(id));
 		return ResponseEntity.ok().build();
 	}
+
+	/**
+	 * Create several evaluations at once. The evaluations are persisted in chunks
+	 * sharing a transaction and each one gets its own result.
+	 *
+	 * @param dtos Information about the evaluations to create.
+	 * @return ResponseEntity containing the result of each evaluation, in the order
+	 *         of the request.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<EvaluationFullDTO>>> createBatch(
+			@RequestBody List<EvaluationFullDTO> dtos) {
+		List<BatchResultDTO<EvaluationFullDTO>> results = batchExecutor.execute(dtos, evaluationService::create);
+		List<Integer> ids = results.stream().filter(result -> result.getBody() != null)
+				.map(result -> result.getBody().getId()).toList();
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, ids);
+		evaluationStatistics.reindex(ids);
+		return ResponseEntity.ok(results);
+	}
+
+	/**
+	 * Update several evaluations at once, each one being identified by its
+	 * {@code id}. An item without {@code id} is rejected with a 400.
+	 *
+	 * @param dtos The new information about the evaluations.
+	 * @return ResponseEntity containing the result of each evaluation, in the order
+	 *         of the request.
+	 */
+	@PutMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<EvaluationFullDTO>>> updateBatch(
+			@RequestBody List<EvaluationFullDTO> dtos) {
+		List<Integer> ids = batchExecutor.idsOf(dtos, EvaluationFullDTO::getId);
+		List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EVALUATIONS, ids);
+		List<BatchResultDTO<EvaluationFullDTO>> results = batchExecutor.execute(dtos, dto -> {
+			if (dto.getId() == null) {
+				throw new InvalidItemException("Missing id");
+			}
+			return evaluationService.update(dto);
+		});
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, ids, previousOwners);
+		evaluationStatistics.reindex(BatchExecutor.succeededIds(dtos, results, EvaluationFullDTO::getId));
+		return ResponseEntity.ok(results);
+	}
+
+	/**
+	 * Delete several evaluations at once.
+	 *
+	 * @param ids The identifiers of the evaluations to delete.
+	 * @return ResponseEntity containing the result of each deletion, in the
+	 *         order of the request.
+	 */
+	@DeleteMapping("/batch")
+	public ResponseEntity<List<BatchResultDTO<Void>>> deleteBatch(@RequestBody List<Integer> ids) {
+		List<Integer> requested = batchExecutor.idsOf(ids, Function.identity());
+		List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.EVALUATIONS, requested);
+		List<BatchResultDTO<Void>> results = batchExecutor.execute(ids, id -> {
+			evaluationService.deleteById(id);
+			return null;
+		});
+		learningReadModel.evictOwners(ResourceTables.EVALUATIONS, requested, previousOwners);
+		evaluationStatistics.reindex(BatchExecutor.succeededIds(ids, results, Function.identity()));
+		return ResponseEntity.ok(results);
+	}
 }
@@ -2,15 +2,17 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.InterSessionBasicDTO;
@@ -18,43 +20,93 @@ import af.cmr.indyli.akdemia.business.dto.full.InterSessionFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IInterSessionService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.SchedulingConflicts;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import jakarta.annotation.Resource;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/intersessions")
 public class InterSessionController {
 	
+    private final ResourceQueryService resourceQueryService;
+    private final SchedulingConflicts schedulingConflicts;
+    private final EvaluationStatistics evaluationStatistics;
+
 	@Resource(name = ConstsValues.ServiceKeys.INTER_SESSION_SERVICE_KEY)
     private IInterSessionService interSessionService;
+
+    /**
+     * Constructor for InterSessionController.
+     *
+     * @param resourceQueryService ResourceQueryService instance reading the pages of inter-company sessions.
+     * @param schedulingConflicts SchedulingConflicts reindexed on writes.
+     * @param evaluationStatistics EvaluationStatistics reindexed on writes.
+     */
+    public InterSessionController(ResourceQueryService resourceQueryService, SchedulingConflicts schedulingConflicts,
+            EvaluationStatistics evaluationStatistics) {
+        this.evaluationStatistics = evaluationStatistics;
+        this.schedulingConflicts = schedulingConflicts;
+        this.resourceQueryService = resourceQueryService;
+    }
 	
 	@GetMapping
     public ResponseEntity<List<InterSessionBasicDTO>> getAll() {
         return ResponseEntity.ok(ResponseEntity.ok(interSessionService.findAll()).getBody());
     }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(resourceQueryService.page(ResourceTables.INTER_SESSIONS, limit, after, sort, fields));
+    }
+
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.INTER_SESSIONS, fields));
+    }
 	
 	@GetMapping("/{id}")
     public ResponseEntity<InterSessionFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
         return ResponseEntity.ok(interSessionService.findById(id));
     }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.INTER_SESSIONS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
 	
     @PostMapping
     public ResponseEntity<InterSessionFullDTO> create(@RequestBody InterSessionFullDTO interSessionDTO) throws AkdemiaBusinessException {
-    	return ResponseEntity.ok(interSessionService.create(interSessionDTO));
+        InterSessionFullDTO created = interSessionService.create(interSessionDTO);
+        schedulingConflicts.reindexSession(created.getId());
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(created.getId())))
+                .body(created);
     }
 
     
     @PutMapping("/{id}")
     public ResponseEntity<InterSessionFullDTO> update(@PathVariable("id") int id, @RequestBody InterSessionFullDTO interSessionDTO) 
     		throws AccessDeniedException, AkdemiaBusinessException {
-    	return ResponseEntity.ok(interSessionService.update(interSessionDTO));
+        InterSessionFullDTO updated = interSessionService.update(interSessionDTO);
+        schedulingConflicts.reindexSession(updated.getId());
+        evaluationStatistics.reindexSession(updated.getId());
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(updated.getId())))
+                .body(updated);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
         interSessionService.deleteById(id);
+        schedulingConflicts.reindexSession(id);
+        evaluationStatistics.reindexSession(id);
         return ResponseEntity.ok().build();
     }
 }
@@ -2,15 +2,17 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.IntraSessionBasicDTO;
@@ -18,44 +20,95 @@ import af.cmr.indyli.akdemia.business.dto.full.IntraSessionFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IIntraSessionService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.SchedulingConflicts;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import jakarta.annotation.Resource;
 
 @RestController
-	@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 	@RequestMapping("/intrasessions")
 	public class IntraSessionController {
 		
+	    private final ResourceQueryService resourceQueryService;
+	    private final SchedulingConflicts schedulingConflicts;
+	    private final EvaluationStatistics evaluationStatistics;
+
 		@Resource(name = ConstsValues.ServiceKeys.INTRA_SESSION_SERVICE_KEY)
 	    private IIntraSessionService intraSessionService;
+
+	    /**
+	     * Constructor for IntraSessionController.
+	     *
+	     * @param resourceQueryService ResourceQueryService instance reading the pages of intra-company sessions.
+	     * @param schedulingConflicts SchedulingConflicts reindexed on writes.
+	     * @param evaluationStatistics EvaluationStatistics reindexed on writes.
+	     */
+	    public IntraSessionController(ResourceQueryService resourceQueryService,
+	    		SchedulingConflicts schedulingConflicts, EvaluationStatistics evaluationStatistics) {
+	    	this.evaluationStatistics = evaluationStatistics;
+	    	this.schedulingConflicts = schedulingConflicts;
+	    	this.resourceQueryService = resourceQueryService;
+	    }
 		
 		@GetMapping
 	    public ResponseEntity<List<IntraSessionBasicDTO>> getAll() {
 	        return ResponseEntity.ok(ResponseEntity.ok(intraSessionService.findAll()).getBody());
 	    }
+
+	    @GetMapping(params = "limit")
+	    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+	    		@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+	    		@RequestParam(required = false) String fields) {
+	    	return ResponseEntity
+	    			.ok(resourceQueryService.page(ResourceTables.INTRA_SESSIONS, limit, after, sort, fields));
+	    }
+
+	    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+	    	return ResponseEntity.ok(resourceQueryService.list(ResourceTables.INTRA_SESSIONS, fields));
+	    }
 		
 		@GetMapping("/{id}")
 	    public ResponseEntity<IntraSessionFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
 	        return ResponseEntity.ok(intraSessionService.findById(id));
 	    }
+
+	    @GetMapping(value = "/{id}", params = "fields")
+	    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+	    	Map<String, Object> item = resourceQueryService.findOne(ResourceTables.INTRA_SESSIONS, id, fields);
+	    	return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	    }
 		
 		
 	    @PostMapping
 	    public ResponseEntity<IntraSessionFullDTO> create(@RequestBody IntraSessionFullDTO intraSessionDTO) throws AkdemiaBusinessException {
-	    	return ResponseEntity.ok(intraSessionService.create(intraSessionDTO));
+	        IntraSessionFullDTO created = intraSessionService.create(intraSessionDTO);
+	        schedulingConflicts.reindexSession(created.getId());
+	        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+	                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(created.getId())))
+	                .body(created);
 	    }
 
 	    
 	    @PutMapping("/{id}")
 	    public ResponseEntity<IntraSessionFullDTO> update(@PathVariable("id") int id, @RequestBody IntraSessionFullDTO intraSessionDTO) 
 	    		throws AccessDeniedException, AkdemiaBusinessException {
-	    	return ResponseEntity.ok(intraSessionService.update(intraSessionDTO));
+	        IntraSessionFullDTO updated = intraSessionService.update(intraSessionDTO);
+	        schedulingConflicts.reindexSession(updated.getId());
+	        evaluationStatistics.reindexSession(updated.getId());
+	        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+	                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(updated.getId())))
+	                .body(updated);
 	    }
 
 	    @DeleteMapping("/{id}")
 	    public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
 	        intraSessionService.deleteById(id);
+	        schedulingConflicts.reindexSession(id);
+	        evaluationStatistics.reindexSession(id);
 	        return ResponseEntity.ok().build();
 	    }
 
@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.ManagerBasicDTO;
@@ -19,20 +21,36 @@ import af.cmr.indyli.akdemia.business.dto.full.ManagerFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IManagerService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to managers.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/managers")
 public class ManagerController {
 
+	private final UserDetailsCache userDetailsCache;
+	private final ResourceQueryService resourceQueryService;
+
 	@Resource(name = ConstsValues.ServiceKeys.MANAGER_SERVICE_KEY)
 	private IManagerService managerService;
 
+	/**
+	 * Constructor for ManagerController.
+	 *
+	 * @param userDetailsCache Cache of the authenticated users, evicted on writes.
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of managers.
+	 */
+	public ManagerController(UserDetailsCache userDetailsCache, ResourceQueryService resourceQueryService) {
+		this.resourceQueryService = resourceQueryService;
+		this.userDetailsCache = userDetailsCache;
+	}
+
 	/**
 	 * Retrieve the list of all managers.
 	 *
@@ -43,6 +61,35 @@ public class ManagerController {
 		return ResponseEntity.ok(managerService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of managers, in keyset order.
+	 *
+	 * @param limit  Maximum number of managers in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of managers and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.MANAGERS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the managers.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of managers.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.MANAGERS, fields));
+	}
+
 	/**
 	 * Retrieve information about a manager by its identifier.
 	 *
@@ -55,6 +102,19 @@ public class ManagerController {
 		return ResponseEntity.ok(managerService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a manager by its identifier.
+	 *
+	 * @param id     The identifier of the manager.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the manager.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.MANAGERS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new manager.
 	 *
@@ -80,7 +140,10 @@ public class ManagerController {
 	@PutMapping("/{id}")
 	public ResponseEntity<ManagerFullDTO> update(@PathVariable int id, @RequestBody ManagerFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(managerService.update(dto));
+		String previousEmail = userDetailsCache.evictUser(id);
+		ManagerFullDTO updated = managerService.update(dto);
+		userDetailsCache.evictUser(id, previousEmail);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -94,7 +157,9 @@ public class ManagerController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		String previousEmail = userDetailsCache.evictUser(id);
 		managerService.deleteById(id);
+		userDetailsCache.evictUser(id, previousEmail);
 		return ResponseEntity.ok().build();
 	}
 }
@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.ParticularBasicDTO;
@@ -19,20 +21,36 @@ import af.cmr.indyli.akdemia.business.dto.full.ParticularFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IParticularService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to particulars.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/particulars")
 public class ParticularController {
 
+	private final UserDetailsCache userDetailsCache;
+	private final ResourceQueryService resourceQueryService;
+
 	@Resource(name = ConstsValues.ServiceKeys.PARTICULAR_SERVICE_KEY)
 	private IParticularService particularService;
 
+	/**
+	 * Constructor for ParticularController.
+	 *
+	 * @param userDetailsCache Cache of the authenticated users, evicted on writes.
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of particulars.
+	 */
+	public ParticularController(UserDetailsCache userDetailsCache, ResourceQueryService resourceQueryService) {
+		this.resourceQueryService = resourceQueryService;
+		this.userDetailsCache = userDetailsCache;
+	}
+
 	/**
 	 * Retrieve the list of all particulars.
 	 *
@@ -43,6 +61,35 @@ public class ParticularController {
 		return ResponseEntity.ok(particularService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of particulars, in keyset order.
+	 *
+	 * @param limit  Maximum number of particulars in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of particulars and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.PARTICULARS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the particulars.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of particulars.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.PARTICULARS, fields));
+	}
+
 	/**
 	 * Retrieve information about a particular by its identifier.
 	 *
@@ -55,6 +102,19 @@ public class ParticularController {
 		return ResponseEntity.ok(particularService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a particular by its identifier.
+	 *
+	 * @param id     The identifier of the particular.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the particular.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.PARTICULARS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new particular.
 	 *
@@ -81,7 +141,10 @@ public class ParticularController {
 	@PutMapping("/{id}")
 	public ResponseEntity<ParticularFullDTO> update(@PathVariable int id, @RequestBody ParticularFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(particularService.update(dto));
+		String previousEmail = userDetailsCache.evictUser(id);
+		ParticularFullDTO updated = particularService.update(dto);
+		userDetailsCache.evictUser(id, previousEmail);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -95,7 +158,9 @@ public class ParticularController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		String previousEmail = userDetailsCache.evictUser(id);
 		particularService.deleteById(id);
+		userDetailsCache.evictUser(id, previousEmail);
 		return ResponseEntity.ok().build();
 	}
 }
@@ -1,10 +1,15 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,24 +17,50 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.basic.ParticularSubscriptionBasicDTO;
 import af.cmr.indyli.akdemia.business.dto.full.ParticularSubscriptionFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IParticularSubscriptionService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor;
+import af.cmr.indyli.akdemia.ws.service.BatchExecutor.InvalidItemException;
+import af.cmr.indyli.akdemia.ws.service.LearningReadModel;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.utils.ExportFormat;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/particularsubscriptions")
 public class ParticularSubscriptionController {
 
+    private final ResourceQueryService resourceQueryService;
+    private final BatchExecutor batchExecutor;
+    private final LearningReadModel learningReadModel;
+
 	@Resource(name = ConstsValues.ServiceKeys.PARTICULAR_SUBSCRIPTION_SERVICE_KEY)
     private IParticularSubscriptionService particularSubscriptionService;
 
+    /**
+     * Constructor for ParticularSubscriptionController.
+     *
+     * @param resourceQueryService ResourceQueryService instance reading the pages of particular subscriptions.
+     * @param batchExecutor BatchExecutor running the batch requests.
+     * @param learningReadModel LearningReadModel evicted on writes.
+     */
+    public ParticularSubscriptionController(ResourceQueryService resourceQueryService, BatchExecutor batchExecutor,
+            LearningReadModel learningReadModel) {
+        this.learningReadModel = learningReadModel;
+        this.batchExecutor = batchExecutor;
+        this.resourceQueryService = resourceQueryService;
+    }
+
 	/**
 	 * Retrieve a list of all particularSubscription.
 	 *
@@ -39,6 +70,76 @@ public class ParticularSubscriptionController {
     public ResponseEntity<List<ParticularSubscriptionBasicDTO>> getAll() {
         return ResponseEntity.ok(particularSubscriptionService.findAll());
     }
+
+    /**
+     * Retrieve a page of particular subscriptions, in keyset order.
+     *
+     * @param limit  Maximum number of particular subscriptions in the page.
+     * @param after  Cursor of the page, as returned with the previous page.
+     * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+     *               with {@code -} for a descending order.
+     * @param fields Comma separated fields to return, all of them by default.
+     * @return ResponseEntity containing the page of particular subscriptions and the cursor of
+     *         the next page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity
+                .ok(resourceQueryService.page(ResourceTables.PARTICULAR_SUBSCRIPTIONS, limit, after, sort, fields));
+    }
+
+    /**
+     * Retrieve the requested fields of all the particular subscriptions.
+     *
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the list of particular subscriptions.
+     */
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.PARTICULAR_SUBSCRIPTIONS, fields));
+    }
+
+    /**
+     * Stream all the particular subscriptions as NDJSON, one subscription per line.
+     *
+     * @param fields Comma separated fields to return, all of them by default.
+     * @return ResponseEntity streaming the particular subscriptions as they are read.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(resourceQueryService.stream(ResourceTables.PARTICULAR_SUBSCRIPTIONS, fields));
+    }
+
+    /**
+     * Export the particular subscriptions as a CSV or XLSX file, streamed from
+     * the database as the rows are read, optionally restricted to a period.
+     *
+     * @param format  Format of the export, {@code csv} (the default) or
+     *                {@code xlsx}.
+     * @param from    Creation date of the subscriptions from which the rows are
+     *                exported, included.
+     * @param to      Creation date of the subscriptions until which the rows are
+     *                exported, included.
+     * @param fields  Comma separated fields to export, all of them by default.
+     * @return ResponseEntity streaming the file.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String fields) {
+        ExportFormat exportFormat = ExportFormat.byExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("particularsubscriptions"))
+                .body(resourceQueryService.export(ResourceTables.PARTICULAR_SUBSCRIPTIONS, exportFormat, from, to,
+                        null, fields));
+    }
     
     /**
 	 * Retrieve information about a particularSubscription by its identifier.
@@ -51,6 +152,19 @@ public class ParticularSubscriptionController {
     public ResponseEntity<ParticularSubscriptionFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
         return ResponseEntity.ok(particularSubscriptionService.findById(id));
     }
+
+    /**
+     * Retrieve the requested fields of a particular subscription by its identifier.
+     *
+     * @param id     The identifier of the particular subscription.
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the requested fields of the particular subscription.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.PARTICULAR_SUBSCRIPTIONS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
     
     /**
 	 * Create a new particularSubscription.
@@ -62,7 +176,9 @@ public class ParticularSubscriptionController {
 	 */
     @PostMapping
     public ResponseEntity<ParticularSubscriptionFullDTO> create(@RequestBody ParticularSubscriptionFullDTO particularSubscriptionFullDTO) throws AkdemiaBusinessException {
-    	return ResponseEntity.ok(particularSubscriptionService.create(particularSubscriptionFullDTO));
+        ParticularSubscriptionFullDTO created = particularSubscriptionService.create(particularSubscriptionFullDTO);
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, List.of(created.getId()));
+        return ResponseEntity.ok(created);
     }
 
     /**
@@ -77,7 +193,11 @@ public class ParticularSubscriptionController {
     @PutMapping("/{id}")
     public ResponseEntity<ParticularSubscriptionFullDTO> update(@PathVariable("id") int id, @RequestBody ParticularSubscriptionFullDTO particularSubscriptionDTO) 
     		throws AccessDeniedException, AkdemiaBusinessException {
-    	return ResponseEntity.ok(particularSubscriptionService.update(particularSubscriptionDTO));
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS,
+                List.of(id));
+        ParticularSubscriptionFullDTO updated = particularSubscriptionService.update(particularSubscriptionDTO);
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, List.of(id), previousOwners);
+        return ResponseEntity.ok(updated);
     }
 
     /**
@@ -90,7 +210,71 @@ public class ParticularSubscriptionController {
 	 */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
-    	particularSubscriptionService.deleteById(id);
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS,
+                List.of(id));
+        particularSubscriptionService.deleteById(id);
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, List.of(id), previousOwners);
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Create several particular subscriptions at once. The particular subscriptions are persisted in chunks
+     * sharing a transaction and each one gets its own result.
+     *
+     * @param dtos Information about the particular subscriptions to create.
+     * @return ResponseEntity containing the result of each subscription, in the order
+     *         of the request.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<ParticularSubscriptionFullDTO>>> createBatch(
+            @RequestBody List<ParticularSubscriptionFullDTO> dtos) {
+        List<BatchResultDTO<ParticularSubscriptionFullDTO>> results = batchExecutor.execute(dtos,
+                particularSubscriptionService::create);
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, results.stream()
+                .filter(result -> result.getBody() != null).map(result -> result.getBody().getId()).toList());
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Update several particular subscriptions at once, each one being identified by its
+     * {@code id}. An item without {@code id} is rejected with a 400.
+     *
+     * @param dtos The new information about the particular subscriptions.
+     * @return ResponseEntity containing the result of each subscription, in the order
+     *         of the request.
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<ParticularSubscriptionFullDTO>>> updateBatch(
+            @RequestBody List<ParticularSubscriptionFullDTO> dtos) {
+        List<Integer> ids = batchExecutor.idsOf(dtos, ParticularSubscriptionFullDTO::getId);
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, ids);
+        List<BatchResultDTO<ParticularSubscriptionFullDTO>> results = batchExecutor.execute(dtos, dto -> {
+            if (dto.getId() == null) {
+                throw new InvalidItemException("Missing id");
+            }
+            return particularSubscriptionService.update(dto);
+        });
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, ids, previousOwners);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Delete several particular subscriptions at once.
+     *
+     * @param ids The identifiers of the particular subscriptions to delete.
+     * @return ResponseEntity containing the result of each deletion, in the
+     *         order of the request.
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO<Void>>> deleteBatch(@RequestBody List<Integer> ids) {
+        List<Integer> requested = batchExecutor.idsOf(ids, Function.identity());
+        List<Integer> previousOwners = learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS,
+                requested);
+        List<BatchResultDTO<Void>> results = batchExecutor.execute(ids, id -> {
+            particularSubscriptionService.deleteById(id);
+            return null;
+        });
+        learningReadModel.evictOwners(ResourceTables.PARTICULAR_SUBSCRIPTIONS, requested, previousOwners);
+        return ResponseEntity.ok(results);
+    }
 }
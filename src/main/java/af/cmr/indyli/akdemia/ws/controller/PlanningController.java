@@ -1,10 +1,13 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.PlanningBasicDTO;
@@ -19,20 +23,36 @@ import af.cmr.indyli.akdemia.business.dto.full.PlanningFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IPlanningService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.PlanificationCalendar;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to plannings.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/planifications")
 public class PlanningController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final PlanificationCalendar planificationCalendar;
+
 	@Resource(name = ConstsValues.ServiceKeys.PLANNING_SERVICE_KEY)
 	private IPlanningService planificationService;
 
+	/**
+	 * Constructor for PlanningController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of planifications.
+	 * @param planificationCalendar PlanificationCalendar instance answering the calendar queries.
+	 */
+	public PlanningController(ResourceQueryService resourceQueryService, PlanificationCalendar planificationCalendar) {
+		this.resourceQueryService = resourceQueryService;
+		this.planificationCalendar = planificationCalendar;
+	}
+
 	/**
 	 * Retrieve the list of all plannings.
 	 *
@@ -43,6 +63,56 @@ public class PlanningController {
 		return ResponseEntity.ok(planificationService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of planifications, in keyset order.
+	 *
+	 * @param limit  Maximum number of planifications in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of planifications and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.PLANIFICATIONS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the planifications.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of planifications.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.PLANIFICATIONS, fields));
+	}
+
+	/**
+	 * Retrieve the planifications running during a period, answered from the
+	 * in-memory calendar rather than by reading every planification.
+	 *
+	 * @param company Identifier of the company of the planifications, all the
+	 *                companies by default.
+	 * @param from    First day of the period, included.
+	 * @param to      Last day of the period, included.
+	 * @return ResponseEntity containing the planifications sharing at least one
+	 *         day with the period, ordered by start date.
+	 */
+	@GetMapping(params = { "from", "to", "!limit", "!fields" })
+	public ResponseEntity<List<Map<String, Object>>> getCalendar(@RequestParam(required = false) Integer company,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		if (to.isBefore(from)) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(planificationCalendar.overlapping(company, from, to));
+	}
+
 	/**
 	 * Retrieve information about a planning by its identifier.
 	 *
@@ -55,6 +125,19 @@ public class PlanningController {
 		return ResponseEntity.ok(planificationService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a planification by its identifier.
+	 *
+	 * @param id     The identifier of the planification.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the planification.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.PLANIFICATIONS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new planning.
 	 *
@@ -65,7 +148,9 @@ public class PlanningController {
 	 */
 	@PostMapping
 	public ResponseEntity<PlanningFullDTO> create(@RequestBody PlanningFullDTO dto) throws AkdemiaBusinessException {
-		return ResponseEntity.ok(planificationService.create(dto));
+		PlanningFullDTO created = planificationService.create(dto);
+		planificationCalendar.reindex(created.getId());
+		return ResponseEntity.ok(created);
 	}
 
 	/**
@@ -80,7 +165,9 @@ public class PlanningController {
 	@PutMapping("/{id}")
 	public ResponseEntity<PlanningFullDTO> update(@PathVariable int id, @RequestBody PlanningFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(planificationService.update(dto));
+		PlanningFullDTO updated = planificationService.update(dto);
+		planificationCalendar.reindex(updated.getId());
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -95,6 +182,7 @@ public class PlanningController {
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
 		planificationService.deleteById(id);
+		planificationCalendar.reindex(id);
 		return ResponseEntity.ok().build();
 	}
 }
@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.RequirementBasicDTO;
@@ -19,20 +21,36 @@ import af.cmr.indyli.akdemia.business.dto.full.RequirementFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IRequirementService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.TrainingSearchIndex;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to project requirements.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/requirements")
 public class RequirementController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final TrainingSearchIndex trainingSearchIndex;
+
 	@Resource(name = ConstsValues.ServiceKeys.REQUIREMENT_SERVICE_KEY)
 	private IRequirementService requirementService;
 
+	/**
+	 * Constructor for RequirementController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of requirements.
+	 * @param trainingSearchIndex TrainingSearchIndex updated on writes.
+	 */
+	public RequirementController(ResourceQueryService resourceQueryService, TrainingSearchIndex trainingSearchIndex) {
+		this.trainingSearchIndex = trainingSearchIndex;
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve the list of all project requirements.
 	 *
@@ -43,6 +61,35 @@ public class RequirementController {
 		return ResponseEntity.ok(requirementService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of requirements, in keyset order.
+	 *
+	 * @param limit  Maximum number of requirements in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of requirements and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.REQUIREMENTS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the requirements.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of requirements.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.REQUIREMENTS, fields));
+	}
+
 	/**
 	 * Retrieve information about a project requirement by its identifier.
 	 *
@@ -55,6 +102,19 @@ public class RequirementController {
 		return ResponseEntity.ok(requirementService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a requirement by its identifier.
+	 *
+	 * @param id     The identifier of the requirement.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the requirement.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.REQUIREMENTS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new project requirement.
 	 *
@@ -66,7 +126,9 @@ public class RequirementController {
 	@PostMapping
 	public ResponseEntity<RequirementFullDTO> create(@RequestBody RequirementFullDTO dto)
 			throws AkdemiaBusinessException {
-		return ResponseEntity.ok(requirementService.create(dto));
+		RequirementFullDTO created = requirementService.create(dto);
+		trainingSearchIndex.reindex(ResourceTables.REQUIREMENTS, created.getId(), List.of());
+		return ResponseEntity.ok(created);
 	}
 
 	/**
@@ -82,7 +144,10 @@ public class RequirementController {
 	@PutMapping("/{id}")
 	public ResponseEntity<RequirementFullDTO> update(@PathVariable int id, @RequestBody RequirementFullDTO dto)
 			throws AccessDeniedException, AkdemiaBusinessException {
-		return ResponseEntity.ok(requirementService.update(dto));
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.REQUIREMENTS, id);
+		RequirementFullDTO updated = requirementService.update(dto);
+		trainingSearchIndex.reindex(ResourceTables.REQUIREMENTS, id, previous);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -96,7 +161,9 @@ public class RequirementController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.REQUIREMENTS, id);
 		requirementService.deleteById(id);
+		trainingSearchIndex.reindex(ResourceTables.REQUIREMENTS, id, previous);
 		return ResponseEntity.ok().build();
 	}
 }
@@ -1,10 +1,15 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,51 +17,229 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.basic.SessionBasicDTO;
 import af.cmr.indyli.akdemia.business.dto.full.SessionFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ISessionService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.ConflictDTO;
+import af.cmr.indyli.akdemia.ws.dto.EvaluationStatsDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.SchedulingConflicts;
+import af.cmr.indyli.akdemia.ws.utils.ExportFormat;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/sessions")
 public class SessionController {
 	
+    private final ResourceQueryService resourceQueryService;
+    private final SchedulingConflicts schedulingConflicts;
+    private final EvaluationStatistics evaluationStatistics;
+
 	@Resource(name = ConstsValues.ServiceKeys.SESSION_SERVICE_KEY)
     private ISessionService sessionService;
+
+    /**
+     * Constructor for SessionController.
+     *
+     * @param resourceQueryService ResourceQueryService instance reading the pages of sessions.
+     * @param schedulingConflicts SchedulingConflicts reindexed on writes and reporting the double bookings.
+     * @param evaluationStatistics EvaluationStatistics reindexed on writes and serving the session statistics.
+     */
+    public SessionController(ResourceQueryService resourceQueryService, SchedulingConflicts schedulingConflicts,
+            EvaluationStatistics evaluationStatistics) {
+        this.evaluationStatistics = evaluationStatistics;
+        this.schedulingConflicts = schedulingConflicts;
+        this.resourceQueryService = resourceQueryService;
+    }
 	
 	@GetMapping
     public ResponseEntity<List<SessionBasicDTO>> getAll() {
         return ResponseEntity.ok(ResponseEntity.ok(sessionService.findAll()).getBody());
     }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(resourceQueryService.page(ResourceTables.SESSIONS, limit, after, sort, fields));
+    }
+
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.SESSIONS, fields));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(resourceQueryService.stream(ResourceTables.SESSIONS, fields));
+    }
+
+    /**
+     * Export the sessions as a CSV or XLSX file, streamed from the database as
+     * the rows are read, optionally restricted to a period and to a company.
+     *
+     * @param format  Format of the export, {@code csv} (the default) or
+     *                {@code xlsx}.
+     * @param from    Date of the sessions from which the rows are
+     *                exported, included.
+     * @param to      Date of the sessions until which the rows are
+     *                exported, included.
+     * @param company Identifier of a company, to export its intra-company
+     *                sessions only.
+     * @param fields  Comma separated fields to export, all of them by default.
+     * @return ResponseEntity streaming the file.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer company, @RequestParam(required = false) String fields) {
+        ExportFormat exportFormat = ExportFormat.byExtension(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().contentType(exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("sessions"))
+                .body(resourceQueryService.export(ResourceTables.SESSIONS, exportFormat, from, to,
+                        company, fields));
+    }
+	
+    /**
+     * Search the sessions, filtered on any combination of a period, a status,
+     * a trainer, a training and a type, in a single query. Only the tables of
+     * the requested type are read: {@code inter} and {@code intra} sessions
+     * join their own table, the other searches read the sessions alone.
+     *
+     * @param from       Date of the sessions from which they are returned,
+     *                   included.
+     * @param to         Date of the sessions until which they are returned,
+     *                   included.
+     * @param status     Status of the sessions.
+     * @param trainerId  Identifier of the trainer of the sessions.
+     * @param trainingId Identifier of the training of the sessions.
+     * @param type       {@code inter} or {@code intra} to return only the
+     *                   sessions of that type, with its own fields.
+     * @param limit      Maximum number of sessions in the page.
+     * @param after      Cursor of the page, as returned with the previous page.
+     * @param sort       Sort key: {@code date} (the default), {@code id} or
+     *                   {@code creationDate}, prefixed with {@code -} for a
+     *                   descending order.
+     * @param fields     Comma separated fields to return, all of them by default.
+     * @return ResponseEntity containing the page of sessions and the cursor of
+     *         the next page.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PageDTO<Map<String, Object>>> search(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status, @RequestParam(required = false) Integer trainerId,
+            @RequestParam(required = false) Integer trainingId, @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "20") int limit, @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "date") String sort, @RequestParam(required = false) String fields) {
+        ResourceTable table;
+        if (type == null || type.isEmpty()) {
+            table = ResourceTables.SESSIONS;
+        } else if ("inter".equals(type)) {
+            table = ResourceTables.INTER_SESSIONS;
+        } else if ("intra".equals(type)) {
+            table = ResourceTables.INTRA_SESSIONS;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("status", status);
+        filters.put("trainerId", trainerId);
+        filters.put("trainingId", trainingId);
+        return ResponseEntity.ok(resourceQueryService.search(table, filters, from, to, limit, after, sort, fields));
+    }
+	
+    /**
+     * Retrieve all the double bookings: the pairs of sessions booking the same
+     * trainer, or the same subscribed employee, on at least one common day.
+     *
+     * @return ResponseEntity containing the conflicts, ordered by kind, person
+     *         and sessions.
+     */
+    @GetMapping("/conflicts")
+    public ResponseEntity<List<ConflictDTO>> getConflicts() {
+        return ResponseEntity.ok(schedulingConflicts.report());
+    }
+
+    /**
+     * Retrieve the sessions booking the trainer or a subscribed employee of a
+     * session on one of its days.
+     *
+     * @param id The identifier of the session.
+     * @return ResponseEntity containing the conflicts of the session.
+     */
+    @GetMapping("/{id}/conflicts")
+    public ResponseEntity<List<ConflictDTO>> getSessionConflicts(@PathVariable int id) {
+        return ResponseEntity.ok(schedulingConflicts.ofSession(id));
+    }
+	
+    /**
+     * Retrieve the statistics of the evaluations of a session: their number
+     * and, for the session and the trainer scores, their mean, variance and
+     * histogram.
+     *
+     * @param id The identifier of the session.
+     * @return ResponseEntity containing the statistics of the session.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<EvaluationStatsDTO> getStats(@PathVariable int id) {
+        return ResponseEntity.ok(evaluationStatistics.ofSession(id));
+    }
 	
 	@GetMapping("/{id}")
     public ResponseEntity<SessionFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
         return ResponseEntity.ok(sessionService.findById(id));
     }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.SESSIONS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
 	
 	
     @PostMapping
     public ResponseEntity<SessionFullDTO> create(@RequestBody SessionFullDTO sessionDTO) throws AkdemiaBusinessException {
-    	return ResponseEntity.ok(sessionService.create(sessionDTO));
+        SessionFullDTO created = sessionService.create(sessionDTO);
+        schedulingConflicts.reindexSession(created.getId());
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(created.getId())))
+                .body(created);
     }
 
     
     @PutMapping("/{id}")
     public ResponseEntity<SessionFullDTO> update(@PathVariable("id") int id, @RequestBody SessionFullDTO sessionDTO) 
     		throws AccessDeniedException, AkdemiaBusinessException {
-    	return ResponseEntity.ok(sessionService.update(sessionDTO));
+        SessionFullDTO updated = sessionService.update(sessionDTO);
+        schedulingConflicts.reindexSession(updated.getId());
+        evaluationStatistics.reindexSession(updated.getId());
+        return ResponseEntity.ok().header(SchedulingConflicts.HEADER,
+                SchedulingConflicts.conflictingSessions(schedulingConflicts.ofSession(updated.getId())))
+                .body(updated);
     }
 
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
         sessionService.deleteById(id);
+        schedulingConflicts.reindexSession(id);
+        evaluationStatistics.reindexSession(id);
         return ResponseEntity.ok().build();
     }
 
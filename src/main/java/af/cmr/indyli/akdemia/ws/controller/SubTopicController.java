@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.SubTopicBasicDTO;
@@ -19,20 +21,36 @@ import af.cmr.indyli.akdemia.business.dto.full.SubTopicFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ISubTopicService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.TrainingSearchIndex;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to subtopics.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/subthemes")
 public class SubTopicController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final TrainingSearchIndex trainingSearchIndex;
+
 	@Resource(name = ConstsValues.ServiceKeys.SUB_TOPIC_SERVICE_KEY)
 	private ISubTopicService subThemeService;
 
+	/**
+	 * Constructor for SubTopicController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of sub-themes.
+	 * @param trainingSearchIndex TrainingSearchIndex updated on writes.
+	 */
+	public SubTopicController(ResourceQueryService resourceQueryService, TrainingSearchIndex trainingSearchIndex) {
+		this.trainingSearchIndex = trainingSearchIndex;
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve the list of all subtopics.
 	 *
@@ -43,6 +61,35 @@ public class SubTopicController {
 		return ResponseEntity.ok(subThemeService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of sub-themes, in keyset order.
+	 *
+	 * @param limit  Maximum number of sub-themes in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of sub-themes and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.SUB_THEMES, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the sub-themes.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of sub-themes.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.SUB_THEMES, fields));
+	}
+
 	/**
 	 * Retrieve information about a subtopic by its identifier.
 	 *
@@ -55,6 +102,19 @@ public class SubTopicController {
 		return ResponseEntity.ok(subThemeService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a sub-theme by its identifier.
+	 *
+	 * @param id     The identifier of the sub-theme.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the sub-theme.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.SUB_THEMES, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new subtopic.
 	 *
@@ -65,7 +125,9 @@ public class SubTopicController {
 	 */
 	@PostMapping
 	public ResponseEntity<SubTopicFullDTO> create(@RequestBody SubTopicFullDTO dto) throws AkdemiaBusinessException {
-		return ResponseEntity.ok(subThemeService.create(dto));
+		SubTopicFullDTO created = subThemeService.create(dto);
+		trainingSearchIndex.reindex(ResourceTables.SUB_THEMES, created.getId(), List.of());
+		return ResponseEntity.ok(created);
 	}
 
 	/**
@@ -80,7 +142,10 @@ public class SubTopicController {
 	@PutMapping("/{id}")
 	public ResponseEntity<SubTopicFullDTO> update(@PathVariable Integer id, @RequestBody SubTopicFullDTO dto)
 			throws AkdemiaBusinessException, AccessDeniedException {
-		return ResponseEntity.ok(subThemeService.update(dto));
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.SUB_THEMES, id);
+		SubTopicFullDTO updated = subThemeService.update(dto);
+		trainingSearchIndex.reindex(ResourceTables.SUB_THEMES, id, previous);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -94,7 +159,9 @@ public class SubTopicController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.SUB_THEMES, id);
 		subThemeService.deleteById(id);
+		trainingSearchIndex.reindex(ResourceTables.SUB_THEMES, id, previous);
 		return ResponseEntity.ok().build();
 	}
 }
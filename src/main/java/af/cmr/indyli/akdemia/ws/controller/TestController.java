@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.TestBasicDTO;
@@ -19,20 +21,32 @@ import af.cmr.indyli.akdemia.business.dto.full.TestFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ITestService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to tests.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/tests")
 public class TestController {
 
+	private final ResourceQueryService resourceQueryService;
+
 	@Resource(name = ConstsValues.ServiceKeys.TEST_SERVICE_KEY)
 	private ITestService testService;
 
+	/**
+	 * Constructor for TestController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of tests.
+	 */
+	public TestController(ResourceQueryService resourceQueryService) {
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve the list of all tests.
 	 *
@@ -43,6 +57,35 @@ public class TestController {
 		return ResponseEntity.ok(testService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of tests, in keyset order.
+	 *
+	 * @param limit  Maximum number of tests in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of tests and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.TESTS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the tests.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of tests.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.TESTS, fields));
+	}
+
 	/**
 	 * Retrieve information about a test by its identifier.
 	 *
@@ -55,6 +98,19 @@ public class TestController {
 		return ResponseEntity.ok(testService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a test by its identifier.
+	 *
+	 * @param id     The identifier of the test.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the test.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.TESTS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new test.
 	 *
@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.TopicBasicDTO;
@@ -19,20 +21,36 @@ import af.cmr.indyli.akdemia.business.dto.full.TopicFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ITopicService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.TrainingSearchIndex;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage operations related to topics.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/themes")
 public class TopicController {
 
+	private final ResourceQueryService resourceQueryService;
+	private final TrainingSearchIndex trainingSearchIndex;
+
 	@Resource(name = ConstsValues.ServiceKeys.TOPIC_SERVICE_KEY)
 	private ITopicService topicService;
 
+	/**
+	 * Constructor for TopicController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of themes.
+	 * @param trainingSearchIndex TrainingSearchIndex updated on writes.
+	 */
+	public TopicController(ResourceQueryService resourceQueryService, TrainingSearchIndex trainingSearchIndex) {
+		this.trainingSearchIndex = trainingSearchIndex;
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve the list of all topics.
 	 *
@@ -43,6 +61,35 @@ public class TopicController {
 		return ResponseEntity.ok(topicService.findAll());
 	}
 
+	/**
+	 * Retrieve a page of themes, in keyset order.
+	 *
+	 * @param limit  Maximum number of themes in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of themes and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.THEMES, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the themes.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of themes.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.THEMES, fields));
+	}
+
 	/**
 	 * Retrieve information about a topic by its identifier.
 	 *
@@ -55,6 +102,19 @@ public class TopicController {
 		return ResponseEntity.ok(topicService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a theme by its identifier.
+	 *
+	 * @param id     The identifier of the theme.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the theme.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.THEMES, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new topic.
 	 *
@@ -64,7 +124,9 @@ public class TopicController {
 	 */
 	@PostMapping
 	public ResponseEntity<TopicFullDTO> create(@RequestBody TopicFullDTO dto) throws AkdemiaBusinessException {
-		return ResponseEntity.ok(topicService.create(dto));
+		TopicFullDTO created = topicService.create(dto);
+		trainingSearchIndex.reindex(ResourceTables.THEMES, created.getId(), List.of());
+		return ResponseEntity.ok(created);
 	}
 
 	/**
@@ -79,7 +141,10 @@ public class TopicController {
 	@PutMapping("/{id}")
 	public ResponseEntity<TopicFullDTO> update(@PathVariable int id, @RequestBody TopicFullDTO dto)
 			throws AkdemiaBusinessException, AccessDeniedException {
-		return ResponseEntity.ok(topicService.update(dto));
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.THEMES, id);
+		TopicFullDTO updated = topicService.update(dto);
+		trainingSearchIndex.reindex(ResourceTables.THEMES, id, previous);
+		return ResponseEntity.ok(updated);
 	}
 
 	/**
@@ -93,7 +158,9 @@ public class TopicController {
 	 */
 	@DeleteMapping("/{id}")
 	public ResponseEntity<?> delete(@PathVariable int id) throws AkdemiaBusinessException, AccessDeniedException {
+		List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.THEMES, id);
 		topicService.deleteById(id);
+		trainingSearchIndex.reindex(ResourceTables.THEMES, id, previous);
 		return ResponseEntity.ok().build();
 	}
 }
@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.TrainerBasicDTO;
@@ -19,17 +21,39 @@ import af.cmr.indyli.akdemia.business.dto.full.TrainerFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ITrainerService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.EvaluationStatsDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/trainers")
 public class TrainerController {
 
+    private final UserDetailsCache userDetailsCache;
+    private final ResourceQueryService resourceQueryService;
+    private final EvaluationStatistics evaluationStatistics;
+
 	@Resource(name = ConstsValues.ServiceKeys.TRAINER_SERVICE_KEY)
     private ITrainerService trainerService;
 
+    /**
+     * Constructor for TrainerController.
+     *
+     * @param userDetailsCache Cache of the authenticated users, evicted on writes.
+     * @param resourceQueryService ResourceQueryService instance reading the pages of trainers.
+     * @param evaluationStatistics EvaluationStatistics serving the statistics of the trainers.
+     */
+    public TrainerController(UserDetailsCache userDetailsCache, ResourceQueryService resourceQueryService,
+            EvaluationStatistics evaluationStatistics) {
+        this.resourceQueryService = resourceQueryService;
+        this.userDetailsCache = userDetailsCache;
+        this.evaluationStatistics = evaluationStatistics;
+    }
+
 	/**
 	 * Retrieve a list of all trainer.
 	 *
@@ -39,6 +63,35 @@ public class TrainerController {
     public ResponseEntity<List<TrainerBasicDTO>> getAll() {
         return ResponseEntity.ok(ResponseEntity.ok(trainerService.findAll()).getBody());
     }
+
+    /**
+     * Retrieve a page of trainers, in keyset order.
+     *
+     * @param limit  Maximum number of trainers in the page.
+     * @param after  Cursor of the page, as returned with the previous page.
+     * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+     *               with {@code -} for a descending order.
+     * @param fields Comma separated fields to return, all of them by default.
+     * @return ResponseEntity containing the page of trainers and the cursor of
+     *         the next page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(resourceQueryService.page(ResourceTables.TRAINERS, limit, after, sort, fields));
+    }
+
+    /**
+     * Retrieve the requested fields of all the trainers.
+     *
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the list of trainers.
+     */
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.TRAINERS, fields));
+    }
     
     /**
 	 * Retrieve information about a trainer by its identifier.
@@ -51,6 +104,32 @@ public class TrainerController {
     public ResponseEntity<TrainerFullDTO> getOne(@PathVariable("id") int id) throws AkdemiaBusinessException {
         return ResponseEntity.ok(trainerService.findById(id));
     }
+
+    /**
+     * Retrieve the requested fields of a trainer by its identifier.
+     *
+     * @param id     The identifier of the trainer.
+     * @param fields Comma separated fields to return.
+     * @return ResponseEntity containing the requested fields of the trainer.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.TRAINERS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
+
+    /**
+     * Retrieve the statistics of the evaluations of the sessions of a trainer:
+     * their number and, for the session and the trainer scores, their mean,
+     * variance and histogram.
+     *
+     * @param id The identifier of the trainer.
+     * @return ResponseEntity containing the statistics of the trainer.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<EvaluationStatsDTO> getStats(@PathVariable int id) {
+        return ResponseEntity.ok(evaluationStatistics.ofTrainer(id));
+    }
     
     /**
 	 * Create a new trainer.
@@ -77,7 +156,10 @@ public class TrainerController {
     @PutMapping("/{id}")
     public ResponseEntity<TrainerFullDTO> update(@PathVariable("id") int id, @RequestBody TrainerFullDTO trainerDTO) 
     		throws AccessDeniedException, AkdemiaBusinessException {
-    	return ResponseEntity.ok(trainerService.update(trainerDTO));
+    	String previousEmail = userDetailsCache.evictUser(id);
+    	TrainerFullDTO updated = trainerService.update(trainerDTO);
+    	userDetailsCache.evictUser(id, previousEmail);
+    	return ResponseEntity.ok(updated);
     }
 
     /**
@@ -90,7 +172,9 @@ public class TrainerController {
 	 */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
+        String previousEmail = userDetailsCache.evictUser(id);
         trainerService.deleteById(id);
+        userDetailsCache.evictUser(id, previousEmail);
         return ResponseEntity.ok().build();
     }
 }
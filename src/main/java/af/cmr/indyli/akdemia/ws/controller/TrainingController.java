@@ -1,10 +1,16 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
+import java.io.IOException;
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,23 +18,62 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import af.cmr.indyli.akdemia.business.dto.basic.TrainingBasicDTO;
 import af.cmr.indyli.akdemia.business.dto.full.TrainingFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.ITrainingService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.EvaluationStatsDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.BlobStore;
+import af.cmr.indyli.akdemia.ws.service.EvaluationStatistics;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.TrainingLogo;
+import af.cmr.indyli.akdemia.ws.service.TrainingLogoService;
+import af.cmr.indyli.akdemia.ws.service.TrainingSearchIndex;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/trainings")
 public class TrainingController {
 	
+    private final ResourceQueryService resourceQueryService;
+    private final TrainingLogoService trainingLogoService;
+    private final BlobStore blobStore;
+    private final TrainingSearchIndex trainingSearchIndex;
+    private final EvaluationStatistics evaluationStatistics;
+    private final long maxLogoBytes;
+
 	@Resource(name = ConstsValues.ServiceKeys.TRAINING_SERVICE_KEY)
     private ITrainingService trainingService;
+
+    /**
+     * Constructeur du TrainingController.
+     *
+     * @param resourceQueryService ResourceQueryService lisant les pages de formations.
+     * @param trainingLogoService  TrainingLogoService servant les logos des formations.
+     * @param blobStore            BlobStore envoyant les logos enregistrés.
+     * @param trainingSearchIndex  TrainingSearchIndex mis à jour à chaque écriture.
+     * @param evaluationStatistics EvaluationStatistics servant les statistiques des formations.
+     * @param maxLogoBytes         Taille maximale d'un logo envoyé par un client.
+     */
+    public TrainingController(ResourceQueryService resourceQueryService, TrainingLogoService trainingLogoService,
+            BlobStore blobStore, TrainingSearchIndex trainingSearchIndex, EvaluationStatistics evaluationStatistics,
+            @Value("${akdemia.application.logo.max-bytes:5242880}") long maxLogoBytes) {
+        this.resourceQueryService = resourceQueryService;
+        this.trainingLogoService = trainingLogoService;
+        this.blobStore = blobStore;
+        this.trainingSearchIndex = trainingSearchIndex;
+        this.evaluationStatistics = evaluationStatistics;
+        this.maxLogoBytes = maxLogoBytes;
+    }
 	
 	/**
 	 * Récupère la liste de tous les formations.
@@ -39,6 +84,52 @@ public class TrainingController {
     public ResponseEntity<List<TrainingBasicDTO>> getAll() {
         return ResponseEntity.ok(ResponseEntity.ok(trainingService.findAll()).getBody());
     }
+
+    /**
+     * Récupère une page de formations, paginée par clé (keyset).
+     *
+     * @param limit  Nombre maximum de formations dans la page.
+     * @param after  Curseur de la page, tel que renvoyé avec la page précédente.
+     * @param sort   Clé de tri : {@code id} ou {@code creationDate}, précédée de
+     *               {@code -} pour un ordre décroissant.
+     * @param fields Champs à renvoyer, séparés par des virgules (tous par défaut).
+     * @return ResponseEntity contenant la page de formations et le curseur de la
+     *         page suivante.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+            @RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+        return ResponseEntity.ok(resourceQueryService.page(ResourceTables.TRAININGS, limit, after, sort, fields));
+    }
+
+    /**
+     * Récupère les champs demandés de toutes les formations.
+     *
+     * @param fields Champs à renvoyer, séparés par des virgules.
+     * @return ResponseEntity contenant la liste des formations.
+     */
+    @GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+        return ResponseEntity.ok(resourceQueryService.list(ResourceTables.TRAININGS, fields));
+    }
+
+    /**
+     * Recherche les formations par mots, sans tenir compte des accents ni de la
+     * casse, chaque mot pouvant n'être que le début d'un mot indexé. Les titres
+     * et descriptions des formations, de leurs prérequis, thèmes et sous-thèmes
+     * sont indexés ; les logos ne sont jamais renvoyés.
+     *
+     * @param q     Les mots recherchés.
+     * @param limit Nombre maximum de formations renvoyées.
+     * @return ResponseEntity contenant les formations trouvées, les plus
+     *         pertinentes en premier.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Map<String, Object>>> search(@RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(trainingSearchIndex.search(q, limit));
+    }
     
     /**
      * Récupère les informations sur une formation par son identifiant.
@@ -52,16 +143,108 @@ public class TrainingController {
         return ResponseEntity.ok(trainingService.findById(id));
     }
 
+    /**
+     * Récupère les champs demandés d'une formation par son identifiant.
+     *
+     * @param id     L'identifiant de la formation.
+     * @param fields Champs à renvoyer, séparés par des virgules.
+     * @return ResponseEntity contenant les champs demandés de la formation.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+        Map<String, Object> item = resourceQueryService.findOne(ResourceTables.TRAININGS, id, fields);
+        return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+    }
+
+    /**
+     * Récupère les statistiques des évaluations des sessions d'une formation :
+     * leur nombre et, pour les notes des sessions et des formateurs, leur
+     * moyenne, leur variance et leur histogramme.
+     *
+     * @param id L'identifiant de la formation.
+     * @return ResponseEntity contenant les statistiques de la formation.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<EvaluationStatsDTO> getStats(@PathVariable int id) {
+        return ResponseEntity.ok(evaluationStatistics.ofTraining(id));
+    }
+
+    /**
+     * Récupère le logo d'une formation, en binaire, ou l'une de ses miniatures.
+     * Les logos du magasin de fichiers sont envoyés sans passer par la mémoire.
+     *
+     * @param id       L'identifiant de la formation.
+     * @param size     Taille en pixels du plus grand côté de la miniature, 0 pour
+     *                 le logo original.
+     * @param request  La requête, pour répondre 304 si le client a déjà ce logo.
+     * @param response La réponse, dans laquelle le logo original est envoyé.
+     * @return ResponseEntity contenant l'image.
+     * @throws IOException Si le logo ne peut pas être lu.
+     */
+    @GetMapping("/{id}/logo")
+    public ResponseEntity<byte[]> getLogo(@PathVariable int id, @RequestParam(defaultValue = "0") int size,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!trainingLogoService.isSupportedSize(size)) {
+            return ResponseEntity.badRequest().build();
+        }
+        String hash = trainingLogoService.getHash(id);
+        if (hash == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (new ServletWebRequest(request, response).checkNotModified(etag(hash, size))) {
+            return null;
+        }
+        String blob = size == TrainingLogoService.ORIGINAL_SIZE ? trainingLogoService.getBlob(id) : null;
+        if (blob != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            blobStore.send(blob, request, response);
+            return null;
+        }
+        TrainingLogo logo = trainingLogoService.getLogo(id, hash, size);
+        if (logo == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().eTag(etag(logo.hash(), size)).cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(logo.contentType()).body(logo.bytes());
+    }
+
+    /**
+     * Remplace le logo d'une formation. L'image est enregistrée dans le magasin
+     * de fichiers, la base ne gardant qu'une référence.
+     *
+     * @param id      L'identifiant de la formation.
+     * @param request La requête, dont le corps est l'image.
+     * @return ResponseEntity vide.
+     * @throws IOException Si l'image ne peut pas être enregistrée.
+     */
+    @PutMapping(value = "/{id}/logo", consumes = "image/*")
+    public ResponseEntity<Void> putLogo(@PathVariable int id, HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() < 0 || request.getContentLengthLong() > maxLogoBytes) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return trainingLogoService.storeLogo(id, request.getInputStream()) ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static String etag(String hash, int size) {
+        return '"' + hash + '-' + size + '"';
+    }
+
     /**
      * Crée une nouvelle formation.
      *
      * @param dto Informations sur la formation à créer.
      * @return ResponseEntity contenant les informations sur la formation nouvellement créée.
      * @throws AkdemiaBusinessException Si une exception métier se produit.
+     * @throws IOException              Si le logo ne peut pas être enregistré.
      */
     @PostMapping
-    public ResponseEntity<TrainingFullDTO> create(@RequestBody TrainingFullDTO trainingDTO) throws AkdemiaBusinessException {
-        return ResponseEntity.ok(trainingService.create(trainingDTO));
+    public ResponseEntity<TrainingFullDTO> create(@RequestBody TrainingFullDTO trainingDTO)
+            throws AkdemiaBusinessException, IOException {
+        TrainingFullDTO created = trainingService.create(trainingDTO);
+        trainingLogoService.migrate(created.getId());
+        trainingSearchIndex.reindex(ResourceTables.TRAININGS, created.getId(), List.of());
+        return ResponseEntity.ok(created);
     }
 
     /**
@@ -72,11 +255,20 @@ public class TrainingController {
      * @return ResponseEntity contenant les informations sur la formation mise à jour.
      * @throws AccessDeniedException    Si l'accès est refusé.
      * @throws AkdemiaBusinessException Si une exception métier se produit.
+     * @throws IOException              Si le logo ne peut pas être enregistré.
      */
     @PutMapping("/{id}")
     public ResponseEntity<TrainingFullDTO> update(@PathVariable("id") int id, @RequestBody TrainingFullDTO trainingDTO) 
-            throws AccessDeniedException, AkdemiaBusinessException {
-        return ResponseEntity.ok(trainingService.update(trainingDTO));
+            throws AccessDeniedException, AkdemiaBusinessException, IOException {
+        if (trainingDTO.getLogo() == null) {
+            // le logo ne fait plus partie de la représentation JSON : on garde celui enregistré
+            trainingDTO.setLogo(trainingLogoService.getStoredLogo(id));
+        }
+        List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.TRAININGS, id);
+        TrainingFullDTO updated = trainingService.update(trainingDTO);
+        trainingLogoService.migrate(id);
+        trainingSearchIndex.reindex(ResourceTables.TRAININGS, id, previous);
+        return ResponseEntity.ok(updated);
     }
 
     /**
@@ -89,7 +281,9 @@ public class TrainingController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable("id") int id) throws AkdemiaBusinessException, AccessDeniedException {
+        List<Integer> previous = trainingSearchIndex.trainingsOf(ResourceTables.TRAININGS, id);
         trainingService.deleteById(id);
+        trainingSearchIndex.reindex(ResourceTables.TRAININGS, id, previous);
         return ResponseEntity.ok().build();
     }
 }
@@ -1,21 +1,26 @@
 package af.cmr.indyli.akdemia.ws.controller;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import af.cmr.indyli.akdemia.business.dto.UserRegistrationDTO;
 import af.cmr.indyli.akdemia.business.dto.UserRegistrationResponseDTO;
@@ -25,19 +30,39 @@ import af.cmr.indyli.akdemia.business.dto.full.UserFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IUserService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.service.JwtService;
+import af.cmr.indyli.akdemia.ws.dto.LearningDTO;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.AkdemiaAuthenticationToken;
+import af.cmr.indyli.akdemia.ws.service.AuthorityRegistry;
+import af.cmr.indyli.akdemia.ws.service.BlobStore;
+import af.cmr.indyli.akdemia.ws.service.LearningReadModel;
+import af.cmr.indyli.akdemia.ws.service.LoginService;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.service.UserPhotoService;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * RESTful controller to manage user-related operations.
  */
 @RestController
 @RequestMapping("/users")
-@CrossOrigin("*")
 public class UserController {
 
-	private final JwtService jwtService;
-	private final AuthenticationManager authenticationManager;
+	/**
+	 * Authority allowed to revoke the tokens of any user.
+	 */
+	public static final String ADMIN_AUTHORITY = "admin";
+
+	private final LoginService loginService;
+	private final ResourceQueryService resourceQueryService;
+	private final UserPhotoService userPhotoService;
+	private final BlobStore blobStore;
+	private final LearningReadModel learningReadModel;
+	private final AuthorityRegistry authorityRegistry;
+	private final long maxPhotoBytes;
 
 	@Resource(name = ConstsValues.ServiceKeys.USER_SERVICE_KEY)
 	private IUserService userService;
@@ -45,12 +70,25 @@ public class UserController {
 	/**
 	 * Constructor for UserController.
 	 *
-	 * @param jwtService            Service for handling JWT operations.
-	 * @param authenticationManager Spring Security AuthenticationManager.
+	 * @param loginService Service running the login pipeline.
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of users.
+	 * @param userPhotoService UserPhotoService managing the photos of the users.
+	 * @param blobStore BlobStore sending the photos.
+	 * @param learningReadModel LearningReadModel serving the learning of the users.
+	 * @param authorityRegistry AuthorityRegistry giving the administrators their bit.
+	 * @param maxPhotoBytes Maximum size of a photo uploaded by a client.
 	 */
-	public UserController(JwtService jwtService, AuthenticationManager authenticationManager) {
-		this.jwtService = jwtService;
-		this.authenticationManager = authenticationManager;
+	public UserController(LoginService loginService, ResourceQueryService resourceQueryService,
+			UserPhotoService userPhotoService, BlobStore blobStore, LearningReadModel learningReadModel,
+			AuthorityRegistry authorityRegistry,
+			@Value("${akdemia.application.photo.max-bytes:5242880}") long maxPhotoBytes) {
+		this.resourceQueryService = resourceQueryService;
+		this.loginService = loginService;
+		this.userPhotoService = userPhotoService;
+		this.blobStore = blobStore;
+		this.learningReadModel = learningReadModel;
+		this.authorityRegistry = authorityRegistry;
+		this.maxPhotoBytes = maxPhotoBytes;
 	}
 
 	/**
@@ -79,6 +117,19 @@ public class UserController {
 		return new ResponseEntity<>(userDTO, HttpStatus.OK);
 	}
 
+	/**
+	 * Retrieve the requested fields of a user by its identifier.
+	 *
+	 * @param id     The identifier of the user.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the user.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.USERS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Retrieve a list of all users.
 	 *
@@ -90,6 +141,47 @@ public class UserController {
 		return new ResponseEntity<>(companies, HttpStatus.OK);
 	}
 
+	/**
+	 * Retrieve a page of users, in keyset order.
+	 *
+	 * @param limit  Maximum number of users in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of users and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok(resourceQueryService.page(ResourceTables.USERS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the users.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of users.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.USERS, fields));
+	}
+
+	/**
+	 * Stream all the users as NDJSON, one user per line.
+	 *
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity streaming the users as they are read.
+	 */
+	@GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+				.body(resourceQueryService.stream(ResourceTables.USERS, fields));
+	}
+
 	/**
 	 * Retrieve information about a user by their email.
 	 *
@@ -119,24 +211,137 @@ public class UserController {
 	}
 
 	/**
-	 * Authenticate a user and generate a JWT token.
+	 * Authenticate a user and generate a JWT token and a refresh token.
 	 *
 	 * @param authRequest Information about the user for authentication.
-	 * @return ResponseEntity containing the generated JWT token.
+	 * @return ResponseEntity containing the generated JWT token and refresh token.
 	 * @throws AkdemiaBusinessException If a business exception occurs.
 	 */
 	@PostMapping("/generateToken")
 	public ResponseEntity<Map<String, String>> authenticateAndGetToken(@RequestBody UserRequestDTO authRequest)
 			throws AkdemiaBusinessException {
-		Authentication authentication = authenticationManager.authenticate(
-				new UsernamePasswordAuthenticationToken(authRequest.getEmail(), authRequest.getPassword()));
-		if (authentication.isAuthenticated()) {
-			UserFullDTO user = userService.findUserByEmail(authRequest.getEmail());
-			List<String> roles = this.userService.loadUserByUsername(authRequest.getEmail()).getAuthorities().stream()
-					.map(GrantedAuthority::getAuthority).toList();
-			return ResponseEntity.ok(Map.of("token", jwtService.generateToken(user, roles)));
+		Map<String, String> tokens = loginService.login(authRequest.getEmail(), authRequest.getPassword());
+		if (tokens != null) {
+			return ResponseEntity.ok(tokens);
 		} else {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
 		}
 	}
+
+	/**
+	 * Exchange a refresh token for a new JWT token and a new refresh token.
+	 *
+	 * @param request Body holding the refresh token under {@code refreshToken}.
+	 * @return ResponseEntity containing the new tokens.
+	 */
+	@PostMapping("/refreshToken")
+	public ResponseEntity<Map<String, String>> refreshToken(@RequestBody Map<String, String> request) {
+		Map<String, String> tokens = loginService.refresh(request.get("refreshToken"));
+		if (tokens != null) {
+			return ResponseEntity.ok(tokens);
+		} else {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid refresh token"));
+		}
+	}
+
+	/**
+	 * Revoke a JWT token or a refresh token.
+	 *
+	 * @param request Body holding the token to revoke under {@code token}.
+	 * @return ResponseEntity with an empty body if the token has been revoked.
+	 */
+	@PostMapping("/revokeToken")
+	public ResponseEntity<?> revokeToken(@RequestBody Map<String, String> request) {
+		if (loginService.revoke(request.get("token"))) {
+			return ResponseEntity.ok().build();
+		}
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid token"));
+	}
+
+	/**
+	 * Revoke every token issued so far to a user. Only the user itself and the
+	 * administrators may do so.
+	 *
+	 * @param id             The identifier of the user.
+	 * @param authentication The authentication built from the token.
+	 * @return ResponseEntity with an empty body if the tokens have been revoked, a
+	 *         401 status without token identifying a user, or a 403 status if
+	 *         the caller is neither the user nor an administrator.
+	 */
+	@PostMapping("/{id}/revokeTokens")
+	public ResponseEntity<?> revokeTokens(@PathVariable Integer id, Authentication authentication) {
+		if (!(authentication instanceof AkdemiaAuthenticationToken token) || token.getUserId() == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		if (!id.equals(token.getUserId())
+				&& !token.getCompiledAuthorities().has(authorityRegistry.bitOf(ADMIN_AUTHORITY))) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN)
+					.body(Map.of("error", "Only the user or an administrator may revoke its tokens"));
+		}
+		if (loginService.revokeAll(id)) {
+			return ResponseEntity.ok().build();
+		}
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
+	}
+
+	/**
+	 * Retrieve what the authenticated learner follows: its subscriptions, the
+	 * sessions to come and the evaluations it submitted. The learner is the user
+	 * identified by the {@code id} claim of its token.
+	 *
+	 * @param authentication The authentication built from the token.
+	 * @return ResponseEntity containing the learning of the user, or a 401 status
+	 *         if the request carries no token identifying a user.
+	 */
+	@GetMapping("/me/learning")
+	public ResponseEntity<LearningDTO> getMyLearning(Authentication authentication) {
+		if (!(authentication instanceof AkdemiaAuthenticationToken token) || token.getUserId() == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+		}
+		return ResponseEntity.ok(learningReadModel.getLearning(token.getUserId()));
+	}
+
+	/**
+	 * Retrieve the photo of a user, sent from the blob store without going
+	 * through the heap.
+	 *
+	 * @param id       The identifier of the user.
+	 * @param request  The request, to answer 304 when the client already holds
+	 *                 the photo.
+	 * @param response The response the photo is sent in.
+	 * @return ResponseEntity with a 404 status if the user has no stored photo.
+	 * @throws IOException If the photo cannot be read.
+	 */
+	@GetMapping("/{id}/photo")
+	public ResponseEntity<Void> getPhoto(@PathVariable int id, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		String blob = userPhotoService.getBlob(id);
+		if (blob == null || !blobStore.exists(blob)) {
+			return ResponseEntity.notFound().build();
+		}
+		if (new ServletWebRequest(request, response).checkNotModified('"' + blob + '"')) {
+			return null;
+		}
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+		blobStore.send(blob, request, response);
+		return null;
+	}
+
+	/**
+	 * Replace the photo of a user. The image is stored in the blob store and the
+	 * database only keeps a reference to it.
+	 *
+	 * @param id      The identifier of the user.
+	 * @param request The request, whose body is the image.
+	 * @return ResponseEntity with an empty body if the photo has been stored.
+	 * @throws IOException If the image cannot be stored.
+	 */
+	@PutMapping(value = "/{id}/photo", consumes = "image/*")
+	public ResponseEntity<Void> putPhoto(@PathVariable int id, HttpServletRequest request) throws IOException {
+		if (request.getContentLengthLong() < 0 || request.getContentLengthLong() > maxPhotoBytes) {
+			return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+		}
+		return userPhotoService.storePhoto(id, request.getInputStream()) ? ResponseEntity.noContent().build()
+				: ResponseEntity.notFound().build();
+	}
 }
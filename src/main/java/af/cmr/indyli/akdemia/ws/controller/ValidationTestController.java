@@ -2,9 +2,10 @@ package af.cmr.indyli.akdemia.ws.controller;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import af.cmr.indyli.akdemia.business.dto.basic.ValidationTestBasicDTO;
@@ -19,20 +21,32 @@ import af.cmr.indyli.akdemia.business.dto.full.ValidationTestFullDTO;
 import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
 import af.cmr.indyli.akdemia.business.service.IValidationTestService;
 import af.cmr.indyli.akdemia.business.utils.ConstsValues;
-import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
 import jakarta.annotation.Resource;
 
 /**
  * RESTful controller to manage validation test-related operations.
  */
 @RestController
-@CrossOrigin(origins = AkdemiaUrlBase.url, maxAge = AkdemiaUrlBase.maxAge)
 @RequestMapping("/validationtests")
 public class ValidationTestController {
 
+	private final ResourceQueryService resourceQueryService;
+
 	@Resource(name = ConstsValues.ServiceKeys.VALIDATION_TEST_SERVICE_KEY)
 	private IValidationTestService validationTestService;
 
+	/**
+	 * Constructor for ValidationTestController.
+	 *
+	 * @param resourceQueryService ResourceQueryService instance reading the pages of validation tests.
+	 */
+	public ValidationTestController(ResourceQueryService resourceQueryService) {
+		this.resourceQueryService = resourceQueryService;
+	}
+
 	/**
 	 * Retrieve a list of all validation tests.
 	 *
@@ -43,6 +57,36 @@ public class ValidationTestController {
 		return ResponseEntity.ok(ResponseEntity.ok(validationTestService.findAll()).getBody());
 	}
 
+	/**
+	 * Retrieve a page of validation tests, in keyset order.
+	 *
+	 * @param limit  Maximum number of validation tests in the page.
+	 * @param after  Cursor of the page, as returned with the previous page.
+	 * @param sort   Sort key: {@code id} or {@code creationDate}, prefixed
+	 *               with {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, all of them by default.
+	 * @return ResponseEntity containing the page of validation tests and the cursor of
+	 *         the next page.
+	 */
+	@GetMapping(params = "limit")
+	public ResponseEntity<PageDTO<Map<String, Object>>> getPage(@RequestParam int limit,
+			@RequestParam(required = false) String after, @RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity
+				.ok(resourceQueryService.page(ResourceTables.VALIDATION_TESTS, limit, after, sort, fields));
+	}
+
+	/**
+	 * Retrieve the requested fields of all the validation tests.
+	 *
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the list of validation tests.
+	 */
+	@GetMapping(params = { "fields", "!limit" }, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<Map<String, Object>>> getAllFields(@RequestParam String fields) {
+		return ResponseEntity.ok(resourceQueryService.list(ResourceTables.VALIDATION_TESTS, fields));
+	}
+
 	/**
 	 * Retrieve information about a validation test by its identifier.
 	 *
@@ -55,6 +99,19 @@ public class ValidationTestController {
 		return ResponseEntity.ok(validationTestService.findById(id));
 	}
 
+	/**
+	 * Retrieve the requested fields of a validation test by its identifier.
+	 *
+	 * @param id     The identifier of the validation test.
+	 * @param fields Comma separated fields to return.
+	 * @return ResponseEntity containing the requested fields of the validation test.
+	 */
+	@GetMapping(value = "/{id}", params = "fields")
+	public ResponseEntity<Map<String, Object>> getOneFields(@PathVariable int id, @RequestParam String fields) {
+		Map<String, Object> item = resourceQueryService.findOne(ResourceTables.VALIDATION_TESTS, id, fields);
+		return item == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(item);
+	}
+
 	/**
 	 * Create a new validation test.
 	 *
@@ -0,0 +1,60 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The result of one item of a batch request.
+ *
+ * @param <T> The type of the result of a successful item.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResultDTO<T> {
+
+	private final int index;
+	private final int status;
+	private final T body;
+	private final String error;
+
+	/**
+	 * Constructor to initialize the BatchResultDTO.
+	 *
+	 * @param index  The position of the item in the request.
+	 * @param status The HTTP status the item would have been answered with alone.
+	 * @param body   The result of the item, or null if it failed.
+	 * @param error  The reason why the item failed, or null if it succeeded.
+	 */
+	public BatchResultDTO(int index, int status, T body, String error) {
+		this.index = index;
+		this.status = status;
+		this.body = body;
+		this.error = error;
+	}
+
+	/**
+	 * @return The position of the item in the request.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return The HTTP status the item would have been answered with alone.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return The result of the item, or null if it failed or has no result.
+	 */
+	public T getBody() {
+		return body;
+	}
+
+	/**
+	 * @return The reason why the item failed, or null if it succeeded.
+	 */
+	public String getError() {
+		return error;
+	}
+}
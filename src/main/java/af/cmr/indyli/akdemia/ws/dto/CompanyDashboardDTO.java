@@ -0,0 +1,127 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the manager screen of a company shows, assembled in a single response.
+ * A section that could not be read in time is left null and named in
+ * {@link #getUnavailable()}.
+ */
+public class CompanyDashboardDTO {
+
+	private final Map<String, Object> company;
+	private final List<String> unavailable = new ArrayList<>();
+	private List<Map<String, Object>> employees;
+	private List<Map<String, Object>> planifications;
+	private List<Map<String, Object>> intraSessions;
+	private List<Map<String, Object>> employeeSubscriptions;
+	private Map<String, Object> evaluations;
+
+	/**
+	 * Constructor to initialize the CompanyDashboardDTO.
+	 *
+	 * @param company The company.
+	 */
+	public CompanyDashboardDTO(Map<String, Object> company) {
+		this.company = company;
+	}
+
+	/**
+	 * Records a section that could not be read.
+	 *
+	 * @param section The name of the section.
+	 */
+	public void addUnavailable(String section) {
+		unavailable.add(section);
+	}
+
+	/**
+	 * @return The company.
+	 */
+	public Map<String, Object> getCompany() {
+		return company;
+	}
+
+	/**
+	 * @return The names of the sections that could not be read in time.
+	 */
+	public List<String> getUnavailable() {
+		return Collections.unmodifiableList(unavailable);
+	}
+
+	/**
+	 * @return The employees of the company.
+	 */
+	public List<Map<String, Object>> getEmployees() {
+		return employees;
+	}
+
+	/**
+	 * @param employees The employees of the company.
+	 */
+	public void setEmployees(List<Map<String, Object>> employees) {
+		this.employees = employees;
+	}
+
+	/**
+	 * @return The planifications of the company.
+	 */
+	public List<Map<String, Object>> getPlanifications() {
+		return planifications;
+	}
+
+	/**
+	 * @param planifications The planifications of the company.
+	 */
+	public void setPlanifications(List<Map<String, Object>> planifications) {
+		this.planifications = planifications;
+	}
+
+	/**
+	 * @return The intra-company sessions of the company.
+	 */
+	public List<Map<String, Object>> getIntraSessions() {
+		return intraSessions;
+	}
+
+	/**
+	 * @param intraSessions The intra-company sessions of the company.
+	 */
+	public void setIntraSessions(List<Map<String, Object>> intraSessions) {
+		this.intraSessions = intraSessions;
+	}
+
+	/**
+	 * @return The subscriptions of the employees of the company.
+	 */
+	public List<Map<String, Object>> getEmployeeSubscriptions() {
+		return employeeSubscriptions;
+	}
+
+	/**
+	 * @param employeeSubscriptions The subscriptions of the employees of the
+	 *                              company.
+	 */
+	public void setEmployeeSubscriptions(List<Map<String, Object>> employeeSubscriptions) {
+		this.employeeSubscriptions = employeeSubscriptions;
+	}
+
+	/**
+	 * @return The number of evaluations of the employees of the company and
+	 *         their average scores, under {@code count},
+	 *         {@code sessionScoreAverage} and {@code trainerScoreAverage}.
+	 */
+	public Map<String, Object> getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * @param evaluations The number of evaluations and their average scores.
+	 */
+	public void setEvaluations(Map<String, Object> evaluations) {
+		this.evaluations = evaluations;
+	}
+}
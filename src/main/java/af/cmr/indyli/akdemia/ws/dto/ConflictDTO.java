@@ -0,0 +1,66 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+/**
+ * Two sessions booking the same trainer, or the same employee, on at least
+ * one common day.
+ */
+public class ConflictDTO {
+
+	/**
+	 * Kind of the person booked twice: a trainer.
+	 */
+	public static final String TRAINER = "trainer";
+
+	/**
+	 * Kind of the person booked twice: an employee.
+	 */
+	public static final String EMPLOYEE = "employee";
+
+	private final String kind;
+	private final int personId;
+	private final int sessionId;
+	private final int conflictingSessionId;
+
+	/**
+	 * Constructor to initialize the ConflictDTO.
+	 *
+	 * @param kind                 {@link #TRAINER} or {@link #EMPLOYEE}.
+	 * @param personId             Identifier of the trainer or the employee.
+	 * @param sessionId            Identifier of one of the sessions.
+	 * @param conflictingSessionId Identifier of the other session.
+	 */
+	public ConflictDTO(String kind, int personId, int sessionId, int conflictingSessionId) {
+		this.kind = kind;
+		this.personId = personId;
+		this.sessionId = sessionId;
+		this.conflictingSessionId = conflictingSessionId;
+	}
+
+	/**
+	 * @return {@code trainer} or {@code employee}.
+	 */
+	public String getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return The identifier of the trainer or the employee booked twice.
+	 */
+	public int getPersonId() {
+		return personId;
+	}
+
+	/**
+	 * @return The identifier of one of the sessions.
+	 */
+	public int getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * @return The identifier of the session overlapping it.
+	 */
+	public int getConflictingSessionId() {
+		return conflictingSessionId;
+	}
+}
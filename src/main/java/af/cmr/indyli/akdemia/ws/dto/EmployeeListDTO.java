@@ -0,0 +1,98 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+/**
+ * An employee as listed in the collection, with the name of their company
+ * instead of the whole company and subscriptions graph of
+ * {@code EmployeeFullDTO}.
+ */
+public class EmployeeListDTO {
+
+	private final int id;
+	private final String firstname;
+	private final String lastname;
+	private final String gender;
+	private final String email;
+	private final String phone;
+	private final Integer companyId;
+	private final String companyName;
+
+	/**
+	 * Constructor to initialize the EmployeeListDTO.
+	 *
+	 * @param id          The identifier of the employee.
+	 * @param firstname   The firstname of the employee.
+	 * @param lastname    The lastname of the employee.
+	 * @param gender      The gender of the employee.
+	 * @param email       The email of the employee.
+	 * @param phone       The phone number of the employee.
+	 * @param companyId   The identifier of the company of the employee.
+	 * @param companyName The name of the company of the employee.
+	 */
+	public EmployeeListDTO(int id, String firstname, String lastname, String gender, String email, String phone,
+			Integer companyId, String companyName) {
+		this.id = id;
+		this.firstname = firstname;
+		this.lastname = lastname;
+		this.gender = gender;
+		this.email = email;
+		this.phone = phone;
+		this.companyId = companyId;
+		this.companyName = companyName;
+	}
+
+	/**
+	 * @return The identifier of the employee.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return The firstname of the employee.
+	 */
+	public String getFirstname() {
+		return firstname;
+	}
+
+	/**
+	 * @return The lastname of the employee.
+	 */
+	public String getLastname() {
+		return lastname;
+	}
+
+	/**
+	 * @return The gender of the employee.
+	 */
+	public String getGender() {
+		return gender;
+	}
+
+	/**
+	 * @return The email of the employee.
+	 */
+	public String getEmail() {
+		return email;
+	}
+
+	/**
+	 * @return The phone number of the employee.
+	 */
+	public String getPhone() {
+		return phone;
+	}
+
+	/**
+	 * @return The identifier of the company of the employee.
+	 */
+	public Integer getCompanyId() {
+		return companyId;
+	}
+
+	/**
+	 * @return The name of the company of the employee.
+	 */
+	public String getCompanyName() {
+		return companyName;
+	}
+}
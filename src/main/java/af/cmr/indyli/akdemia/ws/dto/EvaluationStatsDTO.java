@@ -0,0 +1,46 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+/**
+ * Statistics of the evaluations of a session, of the sessions of a trainer or
+ * of the sessions of a training.
+ */
+public class EvaluationStatsDTO {
+
+	private final long evaluations;
+	private final ScoreStatsDTO sessionScore;
+	private final ScoreStatsDTO trainerScore;
+
+	/**
+	 * Constructor to initialize the EvaluationStatsDTO.
+	 *
+	 * @param evaluations  Number of evaluations.
+	 * @param sessionScore Distribution of the scores given to the sessions.
+	 * @param trainerScore Distribution of the scores given to the trainers.
+	 */
+	public EvaluationStatsDTO(long evaluations, ScoreStatsDTO sessionScore, ScoreStatsDTO trainerScore) {
+		this.evaluations = evaluations;
+		this.sessionScore = sessionScore;
+		this.trainerScore = trainerScore;
+	}
+
+	/**
+	 * @return The number of evaluations, with or without scores.
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * @return The distribution of the scores given to the sessions.
+	 */
+	public ScoreStatsDTO getSessionScore() {
+		return sessionScore;
+	}
+
+	/**
+	 * @return The distribution of the scores given to the trainers.
+	 */
+	public ScoreStatsDTO getTrainerScore() {
+		return trainerScore;
+	}
+}
@@ -0,0 +1,118 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The report of an import: how many rows were read and imported, and why the
+ * others were rejected. At most {@code maxErrors} errors are listed.
+ */
+public class ImportReportDTO {
+
+	private final int maxErrors;
+	private final List<RowError> errors = new ArrayList<>();
+	private int rows;
+	private int imported;
+	private int rejected;
+	private boolean completed;
+
+	/**
+	 * Constructor to initialize the ImportReportDTO.
+	 *
+	 * @param maxErrors Maximum number of errors listed in the report.
+	 */
+	public ImportReportDTO(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Counts a row read from the file.
+	 */
+	public void addRow() {
+		rows++;
+	}
+
+	/**
+	 * Counts a row imported.
+	 */
+	public void addImported() {
+		imported++;
+	}
+
+	/**
+	 * Counts a row rejected.
+	 *
+	 * @param line    The line of the file on which the row starts.
+	 * @param column  The column the error is about, or null if it is about the
+	 *                whole row.
+	 * @param message The reason why the row was rejected.
+	 */
+	public void addRejected(int line, String column, String message) {
+		rejected++;
+		if (errors.size() < maxErrors) {
+			errors.add(new RowError(line, column, message));
+		}
+	}
+
+	/**
+	 * Marks the whole file as read.
+	 */
+	public void complete() {
+		completed = true;
+	}
+
+	/**
+	 * @return The number of rows read from the file, header excluded.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return The number of rows imported.
+	 */
+	public int getImported() {
+		return imported;
+	}
+
+	/**
+	 * @return The number of rows rejected.
+	 */
+	public int getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return False if the import stopped before the end of the file, on a
+	 *         malformed record.
+	 */
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	/**
+	 * @return True if more rows were rejected than listed in the errors.
+	 */
+	public boolean isErrorsTruncated() {
+		return rejected > errors.size();
+	}
+
+	/**
+	 * @return The reasons why the rows were rejected, in the order of the file.
+	 */
+	public List<RowError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/**
+	 * The reason why a row was rejected.
+	 *
+	 * @param line    The line of the file on which the row starts.
+	 * @param column  The column the error is about, or null if it is about the
+	 *                whole row.
+	 * @param message The reason why the row was rejected.
+	 */
+	public record RowError(int line, String column, String message) {
+	}
+}
@@ -0,0 +1,53 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a learner, employee or particular, follows: its subscriptions, the
+ * sessions to come among them and the evaluations it submitted.
+ */
+public class LearningDTO {
+
+	private final List<Map<String, Object>> subscriptions;
+	private final List<Map<String, Object>> upcomingSessions;
+	private final List<Map<String, Object>> evaluations;
+
+	/**
+	 * Constructor to initialize the LearningDTO.
+	 *
+	 * @param subscriptions    The subscriptions, ordered by session date.
+	 * @param upcomingSessions The sessions subscribed to that have not taken
+	 *                         place yet, ordered by date.
+	 * @param evaluations      The evaluations, the latest first.
+	 */
+	public LearningDTO(List<Map<String, Object>> subscriptions, List<Map<String, Object>> upcomingSessions,
+			List<Map<String, Object>> evaluations) {
+		this.subscriptions = subscriptions;
+		this.upcomingSessions = upcomingSessions;
+		this.evaluations = evaluations;
+	}
+
+	/**
+	 * @return The subscriptions, each with its session and training, ordered by
+	 *         session date.
+	 */
+	public List<Map<String, Object>> getSubscriptions() {
+		return subscriptions;
+	}
+
+	/**
+	 * @return The sessions subscribed to that take place today or later, ordered
+	 *         by date.
+	 */
+	public List<Map<String, Object>> getUpcomingSessions() {
+		return upcomingSessions;
+	}
+
+	/**
+	 * @return The evaluations, each with its session, the latest first.
+	 */
+	public List<Map<String, Object>> getEvaluations() {
+		return evaluations;
+	}
+}
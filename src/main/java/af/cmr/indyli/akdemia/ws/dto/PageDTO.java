@@ -0,0 +1,50 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import java.util.List;
+
+/**
+ * A page of a collection resource, with the cursor of the next page.
+ *
+ * @param <T> The type of the items.
+ */
+public class PageDTO<T> {
+
+	private final List<T> items;
+	private final String nextCursor;
+	private final int limit;
+
+	/**
+	 * Constructor to initialize the PageDTO.
+	 *
+	 * @param items      The items of the page.
+	 * @param nextCursor The cursor of the next page, or null on the last page.
+	 * @param limit      The maximum number of items of the page.
+	 */
+	public PageDTO(List<T> items, String nextCursor, int limit) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+		this.limit = limit;
+	}
+
+	/**
+	 * @return The items of the page.
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return The cursor to pass as {@code after} to get the next page, or null on
+	 *         the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * @return The maximum number of items of the page.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+}
@@ -0,0 +1,61 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import java.util.Map;
+
+/**
+ * Distribution of one score of the evaluations: how many gave it, its mean,
+ * its variance and how many gave each value.
+ */
+public class ScoreStatsDTO {
+
+	private final long count;
+	private final Double mean;
+	private final Double variance;
+	private final Map<Integer, Long> histogram;
+
+	/**
+	 * Constructor to initialize the ScoreStatsDTO.
+	 *
+	 * @param count     Number of evaluations giving the score.
+	 * @param mean      Mean of the score, null without evaluations.
+	 * @param variance  Population variance of the score, null without
+	 *                  evaluations.
+	 * @param histogram Number of evaluations per value of the score, by
+	 *                  increasing value.
+	 */
+	public ScoreStatsDTO(long count, Double mean, Double variance, Map<Integer, Long> histogram) {
+		this.count = count;
+		this.mean = mean;
+		this.variance = variance;
+		this.histogram = histogram;
+	}
+
+	/**
+	 * @return The number of evaluations giving the score.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return The mean of the score, null without evaluations.
+	 */
+	public Double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return The population variance of the score, null without evaluations.
+	 */
+	public Double getVariance() {
+		return variance;
+	}
+
+	/**
+	 * @return The number of evaluations per value of the score, by increasing
+	 *         value.
+	 */
+	public Map<Integer, Long> getHistogram() {
+		return histogram;
+	}
+}
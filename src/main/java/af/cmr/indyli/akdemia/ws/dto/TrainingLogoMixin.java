@@ -0,0 +1,11 @@
+package af.cmr.indyli.akdemia.ws.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Jackson mix-in for the training DTOs: the logo is still accepted on writes
+ * but never serialized, clients fetch it from {@code /trainings/{id}/logo}.
+ */
+@JsonIgnoreProperties(value = "logo", allowSetters = true)
+public abstract class TrainingLogoMixin {
+}
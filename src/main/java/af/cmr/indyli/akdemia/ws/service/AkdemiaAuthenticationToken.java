@@ -0,0 +1,47 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Collection;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Authentication built by {@link JwtAuthFilter}, carrying the identifier of the
+ * user taken from the token and its authorities compiled into a bitset.
+ */
+public class AkdemiaAuthenticationToken extends UsernamePasswordAuthenticationToken {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Integer userId;
+	private final transient CompiledAuthorities compiledAuthorities;
+
+	/**
+	 * Constructor to initialize an authenticated AkdemiaAuthenticationToken.
+	 *
+	 * @param principal           The authenticated user.
+	 * @param authorities         The authorities of the user.
+	 * @param compiledAuthorities The same authorities compiled into a bitset.
+	 * @param userId              Identifier of the user, from the {@code id} claim.
+	 */
+	public AkdemiaAuthenticationToken(Object principal, Collection<? extends GrantedAuthority> authorities,
+			CompiledAuthorities compiledAuthorities, Integer userId) {
+		super(principal, null, authorities);
+		this.compiledAuthorities = compiledAuthorities;
+		this.userId = userId;
+	}
+
+	/**
+	 * @return The identifier of the authenticated user.
+	 */
+	public Integer getUserId() {
+		return userId;
+	}
+
+	/**
+	 * @return The authorities of the user compiled into a bitset.
+	 */
+	public CompiledAuthorities getCompiledAuthorities() {
+		return compiledAuthorities;
+	}
+}
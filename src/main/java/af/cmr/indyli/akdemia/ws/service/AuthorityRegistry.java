@@ -0,0 +1,90 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Gives every authority name (the roles of {@code akdemia_role} granted through
+ * {@code akdemia_privilege}) a stable bit for the lifetime of the application,
+ * and compiles collections of authorities into {@link CompiledAuthorities}.
+ */
+public class AuthorityRegistry {
+
+	/**
+	 * Number of distinct role lists whose compilation is kept, far above the
+	 * number of role combinations actually granted.
+	 */
+	private static final int MAX_COMPILED_ROLE_LISTS = 1024;
+
+	private final Map<String, Integer> bits = new ConcurrentHashMap<>();
+	private final Map<List<String>, CompiledAuthorities> compiledRoleLists = new ConcurrentHashMap<>();
+	private final AtomicInteger nextBit = new AtomicInteger();
+
+	/**
+	 * Returns the bit of an authority, allocating it on first use.
+	 *
+	 * @param authority Name of the authority.
+	 * @return The bit of the authority.
+	 */
+	public int bitOf(String authority) {
+		Integer bit = bits.get(authority);
+		return bit != null ? bit : bits.computeIfAbsent(authority, name -> nextBit.getAndIncrement());
+	}
+
+	/**
+	 * Compiles authority names into a bitset.
+	 *
+	 * @param authorities Names of the authorities.
+	 * @return The compiled authorities.
+	 */
+	public CompiledAuthorities compileNames(Collection<String> authorities) {
+		if (authorities.isEmpty()) {
+			return CompiledAuthorities.NONE;
+		}
+		int[] compiled = new int[authorities.size()];
+		int highest = 0;
+		int i = 0;
+		for (String authority : authorities) {
+			compiled[i] = bitOf(authority);
+			highest = Math.max(highest, compiled[i++]);
+		}
+		long[] words = new long[(highest >>> 6) + 1];
+		for (int bit : compiled) {
+			words[bit >>> 6] |= 1L << bit;
+		}
+		return new CompiledAuthorities(words);
+	}
+
+	/**
+	 * Compiles the roles carried by a token, reusing the bitset of an identical
+	 * list compiled before: tokens only carry a handful of distinct lists.
+	 *
+	 * @param roles Names of the roles.
+	 * @return The compiled authorities.
+	 */
+	public CompiledAuthorities compileRoles(List<String> roles) {
+		CompiledAuthorities compiled = compiledRoleLists.get(roles);
+		if (compiled == null) {
+			compiled = compileNames(roles);
+			if (compiledRoleLists.size() < MAX_COMPILED_ROLE_LISTS) {
+				compiledRoleLists.putIfAbsent(List.copyOf(roles), compiled);
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles granted authorities into a bitset.
+	 *
+	 * @param authorities The granted authorities.
+	 * @return The compiled authorities.
+	 */
+	public CompiledAuthorities compile(Collection<? extends GrantedAuthority> authorities) {
+		return compileNames(authorities.stream().map(GrantedAuthority::getAuthority).toList());
+	}
+}
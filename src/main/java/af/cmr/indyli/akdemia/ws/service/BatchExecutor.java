@@ -0,0 +1,218 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.nio.file.AccessDeniedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import af.cmr.indyli.akdemia.business.exception.AkdemiaBusinessException;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+
+/**
+ * Runs the items of a batch request through the business services, in chunks
+ * of {@code akdemia.application.batch.chunk-size} items sharing a single
+ * transaction. With the Hibernate batch settings, the updates and deletes of a
+ * chunk are flushed together and committed once, instead of one transaction
+ * and one round-trip per item. Inserts are not grouped: the identifiers are
+ * generated by MySQL ({@code IDENTITY}), so Hibernate sends each insert alone
+ * to read its key, and a chunk of creations only saves the transactions.
+ * <p>
+ * Every item gets its own result. A missing item, an item rejected with an
+ * {@link InvalidItemException} or by a business rule does not affect the
+ * others; an unexpected failure rolls the chunk back, which is then
+ * replayed one item per transaction so that only the failing items are lost.
+ */
+@Component
+public class BatchExecutor {
+
+	private final TransactionTemplate transactionTemplate;
+	private final int chunkSize;
+	private final int maxItems;
+
+	/**
+	 * Constructor to initialize the BatchExecutor.
+	 *
+	 * @param transactionManager Transaction manager of the business services.
+	 * @param chunkSize          Number of items sharing a transaction.
+	 * @param maxItems           Maximum number of items of a batch request.
+	 */
+	public BatchExecutor(PlatformTransactionManager transactionManager,
+			@Value("${akdemia.application.batch.chunk-size:100}") int chunkSize,
+			@Value("${akdemia.application.batch.max-items:1000}") int maxItems) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.chunkSize = chunkSize;
+		this.maxItems = maxItems;
+	}
+
+	/**
+	 * Runs an operation on every item of a batch request.
+	 *
+	 * @param <T>       The type of the items.
+	 * @param <R>       The type of the results.
+	 * @param items     The items of the request.
+	 * @param operation The operation to run on each item.
+	 * @return The results of the items, in the order of the request.
+	 * @throws BatchTooLargeException If the request holds more items than allowed.
+	 */
+	public <T, R> List<BatchResultDTO<R>> execute(List<T> items, BatchOperation<T, R> operation) {
+		checkSize(items);
+		List<BatchResultDTO<R>> results = new ArrayList<>(items.size());
+		for (int start = 0; start < items.size(); start += chunkSize) {
+			List<T> chunk = items.subList(start, Math.min(items.size(), start + chunkSize));
+			results.addAll(executeChunk(chunk, start, operation));
+		}
+		return results;
+	}
+
+	/**
+	 * Lists the identifiers of the items of a batch request, e.g. to evict what
+	 * they own before they are written. The size of the request is checked
+	 * first, so that no query is built for a request {@link #execute} would
+	 * reject.
+	 *
+	 * @param <T>   The type of the items.
+	 * @param items The items of the request.
+	 * @param id    Reads the identifier of an item.
+	 * @return The identifiers, without those of null items and null identifiers.
+	 * @throws BatchTooLargeException If the request holds more items than allowed.
+	 */
+	public <T> List<Integer> idsOf(List<T> items, Function<T, Integer> id) {
+		checkSize(items);
+		return items.stream().filter(Objects::nonNull).map(id).filter(Objects::nonNull).toList();
+	}
+
+	/**
+	 * Lists the identifiers of the items of a batch request which succeeded, e.g.
+	 * to reindex what was actually written.
+	 *
+	 * @param <T>     The type of the items.
+	 * @param <R>     The type of the results.
+	 * @param items   The items of the request.
+	 * @param results The results returned by {@link #execute} for these items.
+	 * @param id      Reads the identifier of an item.
+	 * @return The identifiers of the succeeded items.
+	 */
+	public static <T, R> List<Integer> succeededIds(List<T> items, List<BatchResultDTO<R>> results,
+			Function<T, Integer> id) {
+		return results.stream().filter(result -> result.getStatus() == HttpStatus.OK.value())
+				.map(result -> id.apply(items.get(result.getIndex()))).filter(Objects::nonNull).toList();
+	}
+
+	private void checkSize(List<?> items) {
+		if (items.size() > maxItems) {
+			throw new BatchTooLargeException("A batch request holds at most " + maxItems + " items");
+		}
+	}
+
+	private <T, R> List<BatchResultDTO<R>> executeChunk(List<T> chunk, int offset, BatchOperation<T, R> operation) {
+		try {
+			return transactionTemplate.execute(status -> {
+				List<BatchResultDTO<R>> results = new ArrayList<>(chunk.size());
+				for (int i = 0; i < chunk.size(); i++) {
+					results.add(executeItem(chunk.get(i), offset + i, operation, true));
+				}
+				return results;
+			});
+		} catch (RuntimeException e) {
+			// the transaction of the chunk is lost: replay its items one by one
+			List<BatchResultDTO<R>> results = new ArrayList<>(chunk.size());
+			for (int i = 0; i < chunk.size(); i++) {
+				int index = offset + i;
+				T item = chunk.get(i);
+				try {
+					results.add(transactionTemplate.execute(status -> executeItem(item, index, operation, false)));
+				} catch (RuntimeException itemFailure) {
+					results.add(failure(index, itemFailure));
+				}
+			}
+			return results;
+		}
+	}
+
+	private static <T, R> BatchResultDTO<R> executeItem(T item, int index, BatchOperation<T, R> operation,
+			boolean rethrow) {
+		if (item == null) {
+			return new BatchResultDTO<>(index, HttpStatus.BAD_REQUEST.value(), null, "Missing item");
+		}
+		try {
+			return new BatchResultDTO<>(index, HttpStatus.OK.value(), operation.apply(item), null);
+		} catch (AkdemiaBusinessException | InvalidItemException e) {
+			return new BatchResultDTO<>(index, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+		} catch (AccessDeniedException e) {
+			return new BatchResultDTO<>(index, HttpStatus.FORBIDDEN.value(), null, e.getMessage());
+		} catch (RuntimeException e) {
+			if (rethrow) {
+				throw e;
+			}
+			return failure(index, e);
+		} catch (Exception e) {
+			return failure(index, e);
+		}
+	}
+
+	private static <R> BatchResultDTO<R> failure(int index, Exception e) {
+		return new BatchResultDTO<>(index, HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+				e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+	}
+
+	/**
+	 * The operation run on each item of a batch request, typically a call to a
+	 * business service.
+	 *
+	 * @param <T> The type of the items.
+	 * @param <R> The type of the results.
+	 */
+	@FunctionalInterface
+	public interface BatchOperation<T, R> {
+
+		/**
+		 * @param item An item of the request.
+		 * @return The result of the item.
+		 * @throws Exception If the item is rejected.
+		 */
+		R apply(T item) throws Exception;
+	}
+
+	/**
+	 * Thrown when a batch request holds more items than allowed.
+	 */
+	public static class BatchTooLargeException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor to initialize the BatchTooLargeException.
+		 *
+		 * @param message The reason why the request is rejected.
+		 */
+		public BatchTooLargeException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Thrown by an operation when an item of a batch request is malformed, e.g.
+	 * lacks its identifier. The item is answered with a 400 without affecting
+	 * the others.
+	 */
+	public static class InvalidItemException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor to initialize the InvalidItemException.
+		 *
+		 * @param message The reason why the item is rejected.
+		 */
+		public InvalidItemException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time job moving the training logos stored base64 encoded in the database,
+ * and the user photos referenced by a path, into the {@link BlobStore}. It runs
+ * at startup when {@code akdemia.application.blob-store.migrate-on-startup} is
+ * true; it only touches the rows not migrated yet, so running it again is
+ * harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "akdemia.application.blob-store.migrate-on-startup", havingValue = "true")
+public class BlobMigrationRunner implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BlobMigrationRunner.class);
+
+	private final TrainingLogoService trainingLogoService;
+	private final UserPhotoService userPhotoService;
+
+	/**
+	 * Constructor to initialize the BlobMigrationRunner.
+	 *
+	 * @param trainingLogoService TrainingLogoService migrating the logos.
+	 * @param userPhotoService    UserPhotoService migrating the photos.
+	 */
+	public BlobMigrationRunner(TrainingLogoService trainingLogoService, UserPhotoService userPhotoService) {
+		this.trainingLogoService = trainingLogoService;
+		this.userPhotoService = userPhotoService;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		int logos = trainingLogoService.migrateAll();
+		int photos = userPhotoService.migrateAll();
+		LOGGER.info("Moved {} training logos and {} user photos into the blob store", logos, photos);
+	}
+}
@@ -0,0 +1,184 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.utils.ImageTypes;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Content-addressed store of the images on the local disk.
+ * <p>
+ * Every blob is stored once, under the hex SHA-256 of its content
+ * ({@code ab/cd/abcd...}), and referenced from the database as
+ * {@code blob:sha256:<hash>}. Writes go through a temporary file renamed
+ * atomically, so a blob is either complete or absent, and storing the same
+ * content twice only yields the same reference.
+ * <p>
+ * Blobs are sent with Tomcat's sendfile when the connector supports it, or
+ * else with {@link FileChannel#transferTo}, so image traffic uses neither the
+ * heap nor a database connection. As a blob never changes, its hash can be
+ * used as a strong ETag.
+ */
+@Component
+public class BlobStore {
+
+	/**
+	 * Prefix of the references to the blobs stored in the database.
+	 */
+	public static final String REFERENCE_PREFIX = "blob:sha256:";
+
+	private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private final Path root;
+	private final Path temporary;
+
+	/**
+	 * Constructor to initialize the BlobStore.
+	 *
+	 * @param root Directory of the store, created if needed.
+	 * @throws IOException If the directory cannot be created.
+	 */
+	public BlobStore(@Value("${akdemia.application.blob-store.root:data/blobs}") Path root) throws IOException {
+		this.root = root.toAbsolutePath().normalize();
+		this.temporary = Files.createDirectories(this.root.resolve("tmp"));
+	}
+
+	/**
+	 * @param hash Hash of a blob.
+	 * @return The reference to store in the database.
+	 */
+	public static String toReference(String hash) {
+		return REFERENCE_PREFIX + hash;
+	}
+
+	/**
+	 * @param reference Value read from the database.
+	 * @return The hash of the referenced blob, or null if the value is not a
+	 *         reference to a blob.
+	 */
+	public static String hashOf(String reference) {
+		if (reference == null || !reference.startsWith(REFERENCE_PREFIX)) {
+			return null;
+		}
+		String hash = reference.substring(REFERENCE_PREFIX.length());
+		return HASH.matcher(hash).matches() ? hash : null;
+	}
+
+	/**
+	 * Stores a blob.
+	 *
+	 * @param content The content of the blob, read until its end.
+	 * @return The hash of the blob.
+	 * @throws IOException If the blob cannot be written.
+	 */
+	public String put(InputStream content) throws IOException {
+		MessageDigest digest = sha256();
+		Path file = Files.createTempFile(temporary, "blob", null);
+		try {
+			try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), digest)) {
+				content.transferTo(out);
+			}
+			String hash = HexFormat.of().formatHex(digest.digest());
+			Path target = pathOf(hash);
+			if (!Files.exists(target)) {
+				Files.createDirectories(target.getParent());
+				// same name, same content: losing a race against another writer is harmless
+				Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return hash;
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * @param hash Hash of a blob.
+	 * @return True if the blob is in the store.
+	 */
+	public boolean exists(String hash) {
+		return Files.isRegularFile(pathOf(hash));
+	}
+
+	/**
+	 * Reads a whole blob in memory, for the few cases where its content must be
+	 * processed, such as the generation of thumbnails.
+	 *
+	 * @param hash Hash of the blob.
+	 * @return The content of the blob.
+	 * @throws IOException If the blob cannot be read.
+	 */
+	public byte[] read(String hash) throws IOException {
+		return Files.readAllBytes(pathOf(hash));
+	}
+
+	/**
+	 * Sends a blob as the body of a response, with its content type and its
+	 * length. Validators and caching headers are left to the caller.
+	 *
+	 * @param hash     Hash of the blob.
+	 * @param request  The request being answered.
+	 * @param response The response to write.
+	 * @throws IOException If the blob cannot be read or sent.
+	 */
+	public void send(String hash, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Path file = pathOf(hash);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer signature = ByteBuffer.allocate(ImageTypes.SIGNATURE_LENGTH);
+			channel.read(signature, 0);
+			byte[] head = new byte[signature.position()];
+			signature.flip().get(head);
+
+			response.setContentType(ImageTypes.contentTypeOf(head).toString());
+			response.setContentLengthLong(size);
+			if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+				request.setAttribute(SENDFILE_FILENAME, file.toString());
+				request.setAttribute(SENDFILE_START, 0L);
+				request.setAttribute(SENDFILE_END, size);
+				return;
+			}
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			for (long position = 0; position < size;) {
+				position += channel.transferTo(position, size - position, out);
+			}
+		}
+	}
+
+	private Path pathOf(String hash) {
+		if (!HASH.matcher(hash).matches()) {
+			throw new IllegalArgumentException("Invalid blob hash " + hash);
+		}
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
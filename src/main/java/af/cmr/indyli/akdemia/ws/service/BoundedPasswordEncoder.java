@@ -0,0 +1,138 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * PasswordEncoder running the hashing and verification of a delegate encoder
+ * (BCrypt) on a dedicated, sized and queue-limited pool of threads, so that a
+ * burst of logins can only use a bounded share of the CPU.
+ * <p>
+ * When the queue is full, or when a task waited longer than the maximum wait,
+ * a {@link PasswordEncoderSaturatedException} is thrown immediately instead of
+ * blocking the request thread. The queue depth, active threads, rejections and
+ * the time spent waiting in the queue are published as
+ * {@code akdemia.password.encoder.*} metrics.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+	private final PasswordEncoder delegate;
+	private final ThreadPoolExecutor executor;
+	private final long maxWaitMillis;
+	private final Timer waitTimer;
+	private final Counter rejections;
+
+	/**
+	 * Constructor to initialize the BoundedPasswordEncoder.
+	 *
+	 * @param delegate      PasswordEncoder doing the actual work.
+	 * @param threads       Number of threads hashing passwords.
+	 * @param queueCapacity Maximum number of operations waiting for a thread.
+	 * @param maxWaitMillis Maximum time an operation may wait for a thread.
+	 * @param meterRegistry MeterRegistry receiving the metrics.
+	 */
+	public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.maxWaitMillis = maxWaitMillis;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "password-encoder-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+
+		this.waitTimer = Timer.builder("akdemia.password.encoder.wait").publishPercentiles(0.5, 0.99)
+				.register(meterRegistry);
+		this.rejections = Counter.builder("akdemia.password.encoder.rejections").register(meterRegistry);
+		Gauge.builder("akdemia.password.encoder.queue.depth", executor, e -> e.getQueue().size())
+				.register(meterRegistry);
+		Gauge.builder("akdemia.password.encoder.active", executor, ThreadPoolExecutor::getActiveCount)
+				.register(meterRegistry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return submit(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return submit(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private <T> T submit(Callable<T> operation) {
+		long queuedAt = System.nanoTime();
+		Future<T> future;
+		try {
+			future = executor.submit(() -> {
+				long waited = System.nanoTime() - queuedAt;
+				waitTimer.record(waited, TimeUnit.NANOSECONDS);
+				if (waited > TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+					throw new PasswordEncoderSaturatedException();
+				}
+				return operation.call();
+			});
+		} catch (RejectedExecutionException e) {
+			rejections.increment();
+			throw new PasswordEncoderSaturatedException();
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new PasswordEncoderSaturatedException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof PasswordEncoderSaturatedException saturated) {
+				rejections.increment();
+				throw saturated;
+			}
+			if (e.getCause() instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Thrown when a password operation cannot be run because the password
+	 * encoder threads are saturated.
+	 */
+	public static class PasswordEncoderSaturatedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor to initialize the PasswordEncoderSaturatedException.
+		 */
+		public PasswordEncoderSaturatedException() {
+			super("Too many password operations in progress, please retry later");
+		}
+	}
+}
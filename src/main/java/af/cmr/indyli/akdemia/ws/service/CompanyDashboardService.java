@@ -0,0 +1,172 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.dto.CompanyDashboardDTO;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+
+/**
+ * Service class assembling the dashboard of a company.
+ * <p>
+ * The sections of the dashboard are independent queries, each filtered on the
+ * company, run concurrently on a dedicated, sized and queue-limited pool of
+ * threads, so that the dashboards can only hold a bounded share of the
+ * database connections. The dashboard waits at most
+ * {@code akdemia.application.dashboard.timeout-millis} for all its sections;
+ * a section not read by then, or rejected because the pool is saturated, is
+ * reported as unavailable instead of failing the whole response.
+ * <p>
+ * Cancelling a section does not stop its query, so the queries are also given
+ * a timeout of {@code timeout-millis}, rounded up to the second: the database
+ * stops them and frees their thread instead of letting slow queries saturate
+ * the pool.
+ */
+@Component
+public class CompanyDashboardService implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CompanyDashboardService.class);
+
+	private final ResourceQueryService resourceQueryService;
+	private final JdbcTemplate jdbcTemplate;
+	private final ThreadPoolExecutor executor;
+	private final long timeoutMillis;
+	private final int queryTimeoutSeconds;
+
+	/**
+	 * Constructor to initialize the CompanyDashboardService.
+	 *
+	 * @param resourceQueryService ResourceQueryService reading the sections.
+	 * @param jdbcTemplate         JdbcTemplate whose data source is used to
+	 *                             compute the evaluation averages.
+	 * @param threads              Number of threads reading the sections.
+	 * @param queueCapacity        Maximum number of sections waiting for a
+	 *                             thread.
+	 * @param timeoutMillis        Maximum time a dashboard waits for its
+	 *                             sections.
+	 */
+	public CompanyDashboardService(ResourceQueryService resourceQueryService, JdbcTemplate jdbcTemplate,
+			@Value("${akdemia.application.dashboard.threads:5}") int threads,
+			@Value("${akdemia.application.dashboard.queue-capacity:50}") int queueCapacity,
+			@Value("${akdemia.application.dashboard.timeout-millis:2000}") long timeoutMillis) {
+		this.resourceQueryService = resourceQueryService;
+		this.timeoutMillis = timeoutMillis;
+		this.queryTimeoutSeconds = (int) Math.max(1, (timeoutMillis + 999) / 1000);
+		this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+		this.jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "company-dashboard-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Assembles the dashboard of a company.
+	 *
+	 * @param companyId Identifier of the company.
+	 * @return The dashboard, or null if the company does not exist.
+	 */
+	public CompanyDashboardDTO getDashboard(int companyId) {
+		Map<String, Object> company = resourceQueryService.findOne(ResourceTables.COMPANIES, companyId, null);
+		if (company == null) {
+			return null;
+		}
+		CompanyDashboardDTO dashboard = new CompanyDashboardDTO(company);
+		Map<String, Section<?>> sections = new LinkedHashMap<>();
+		submit(sections, "employees", dashboard::setEmployees,
+				() -> listByCompany(ResourceTables.EMPLOYEES, companyId));
+		submit(sections, "planifications", dashboard::setPlanifications,
+				() -> listByCompany(ResourceTables.PLANIFICATIONS, companyId));
+		submit(sections, "intraSessions", dashboard::setIntraSessions,
+				() -> listByCompany(ResourceTables.INTRA_SESSIONS, companyId));
+		submit(sections, "employeeSubscriptions", dashboard::setEmployeeSubscriptions,
+				() -> listByCompany(ResourceTables.EMPLOYEE_SUBSCRIPTIONS, companyId));
+		submit(sections, "evaluations", dashboard::setEvaluations, () -> evaluationAverages(companyId));
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		for (Map.Entry<String, Section<?>> entry : sections.entrySet()) {
+			if (!entry.getValue().complete(deadline)) {
+				dashboard.addUnavailable(entry.getKey());
+			}
+		}
+		return dashboard;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private List<Map<String, Object>> listByCompany(ResourceTable table, int companyId) {
+		return resourceQueryService.listByCompany(table, companyId, null, queryTimeoutSeconds);
+	}
+
+	private Map<String, Object> evaluationAverages(int companyId) {
+		return jdbcTemplate.queryForMap("SELECT COUNT(*) AS count, AVG(t.SESSION_SCORE) AS sessionScoreAverage,"
+				+ " AVG(t.TRAINER_SCORE) AS trainerScoreAverage FROM " + ResourceTables.EVALUATIONS.getFrom()
+				+ " WHERE " + ResourceTables.EVALUATIONS.getCompanyCondition(), companyId);
+	}
+
+	private <T> void submit(Map<String, Section<?>> sections, String name, Consumer<T> setter, Callable<T> query) {
+		Future<T> future;
+		try {
+			future = executor.submit(query);
+		} catch (RejectedExecutionException e) {
+			future = null;
+		}
+		sections.put(name, new Section<>(name, future, setter));
+	}
+
+	/**
+	 * A section of the dashboard being read, and where to put it once read.
+	 */
+	private record Section<T>(String name, Future<T> future, Consumer<T> setter) {
+
+		/**
+		 * Waits for the section until the deadline.
+		 *
+		 * @return False if the section could not be read in time.
+		 */
+		boolean complete(long deadline) {
+			if (future == null) {
+				return false;
+			}
+			try {
+				setter.accept(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+				return true;
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				return false;
+			} catch (InterruptedException e) {
+				future.cancel(true);
+				Thread.currentThread().interrupt();
+				return false;
+			} catch (ExecutionException e) {
+				LOGGER.warn("Could not read the {} of a company dashboard", name, e.getCause());
+				return false;
+			}
+		}
+	}
+}
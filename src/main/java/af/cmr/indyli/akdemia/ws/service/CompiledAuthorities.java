@@ -0,0 +1,58 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Arrays;
+
+/**
+ * Compact, immutable bitset of authorities, each authority being given a bit by
+ * the {@link AuthorityRegistry}. Checking an authority is a constant time bit test.
+ */
+public final class CompiledAuthorities {
+
+	/**
+	 * Empty set of authorities.
+	 */
+	public static final CompiledAuthorities NONE = new CompiledAuthorities(new long[0]);
+
+	private final long[] words;
+
+	CompiledAuthorities(long[] words) {
+		this.words = words;
+	}
+
+	/**
+	 * Tells whether the authority with the given bit is present.
+	 *
+	 * @param bit Bit of the authority in the {@link AuthorityRegistry}.
+	 * @return True if the authority is present.
+	 */
+	public boolean has(int bit) {
+		int word = bit >>> 6;
+		return word < words.length && (words[word] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Tells whether at least one of the authorities of the given set is present.
+	 *
+	 * @param required The authorities looked for.
+	 * @return True if both sets have an authority in common.
+	 */
+	public boolean intersects(CompiledAuthorities required) {
+		int length = Math.min(words.length, required.words.length);
+		for (int i = 0; i < length; i++) {
+			if ((words[i] & required.words[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof CompiledAuthorities other && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+}
@@ -0,0 +1,148 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Adds validators and caching policies to the GET requests on the collection
+ * resources ({@code /themes}) and their items ({@code /themes/3}).
+ * <p>
+ * Validators are only given to the flat representations read from
+ * {@link ResourceTables}: the pages ({@code ?limit=}) and the field projections
+ * ({@code ?fields=}), whose rows only come from the tables of their
+ * {@link ResourceTable}. The full DTOs embed associations, such as the company
+ * and the subscriptions of an employee, that a write on another resource would
+ * change without any of these tables being written, and the streams and
+ * filtered reads are not worth revalidating.
+ * <p>
+ * The ETag hashes the URL, the Accept header and the write counters of
+ * {@link ResourceVersions}, which are shared by all the nodes of the
+ * application, so that computing it only reads a few primary keys: when it
+ * matches If-None-Match, 304 is answered without running the handler nor
+ * serializing anything.
+ * <p>
+ * The representations with a validator must be revalidated on every use.
+ * The others may be kept by the clients for
+ * {@code akdemia.application.http-cache.reference-max-age} when they are
+ * reference resources, which hardly ever change, and must be revalidated
+ * otherwise.
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+	private static final Set<ResourceTable> REFERENCE_RESOURCES = Set.of(ResourceTables.THEMES,
+			ResourceTables.SUB_THEMES, ResourceTables.ROLES, ResourceTables.REQUIREMENTS, ResourceTables.TESTS);
+
+	private static final Set<String> FLAT_PARAMETERS = Set.of("fields", "limit", "after", "sort");
+
+	private final ResourceVersions resourceVersions;
+	private final String referenceCacheControl;
+	private final String defaultCacheControl;
+
+	/**
+	 * Constructor to initialize the ConditionalGetInterceptor.
+	 *
+	 * @param resourceVersions ResourceVersions counting the writes.
+	 * @param referenceMaxAge  How long the clients may reuse a reference resource
+	 *                         without validator.
+	 */
+	public ConditionalGetInterceptor(ResourceVersions resourceVersions,
+			@Value("${akdemia.application.http-cache.reference-max-age:1m}") Duration referenceMaxAge) {
+		this.resourceVersions = resourceVersions;
+		this.referenceCacheControl = CacheControl.maxAge(referenceMaxAge).cachePrivate().getHeaderValue();
+		this.defaultCacheControl = CacheControl.noCache().cachePrivate().getHeaderValue();
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!HttpMethod.GET.matches(request.getMethod())) {
+			return true;
+		}
+		Target target = Target.of(request.getServletPath());
+		if (target == null) {
+			return true;
+		}
+		if (!isFlat(request)) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL,
+					REFERENCE_RESOURCES.contains(target.table()) ? referenceCacheControl : defaultCacheControl);
+			return true;
+		}
+		response.setHeader(HttpHeaders.CACHE_CONTROL, defaultCacheControl);
+		String etag = '"' + DigestUtils.md5DigestAsHex((request.getRequestURI() + '?' + request.getQueryString() + '|'
+				+ request.getHeader(HttpHeaders.ACCEPT) + '|'
+				+ resourceVersions.versionOf(target.table())).getBytes(StandardCharsets.UTF_8)) + '"';
+		return !new ServletWebRequest(request, response).checkNotModified(etag);
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+				|| HttpMethod.OPTIONS.matches(request.getMethod())) {
+			return;
+		}
+		// writes on sub-resources, such as /employees/batch, also change the resource
+		ResourceTable table = Target.tableOf(request.getServletPath());
+		if (table != null) {
+			resourceVersions.increment(table);
+		}
+	}
+
+	/**
+	 * Tells whether a request reads a page or a projection of fields, and
+	 * nothing else.
+	 */
+	private static boolean isFlat(HttpServletRequest request) {
+		Set<String> parameters = request.getParameterMap().keySet();
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		return (parameters.contains("fields") || parameters.contains("limit"))
+				&& FLAT_PARAMETERS.containsAll(parameters)
+				&& (accept == null || !accept.contains(MediaType.APPLICATION_NDJSON_VALUE));
+	}
+
+	/**
+	 * The resource, and the item if any, targeted by a path.
+	 */
+	private record Target(ResourceTable table, Integer id) {
+
+		static Target of(String path) {
+			String[] segments = path.split("/");
+			ResourceTable table = tableOf(path);
+			if (table == null || segments.length > 3) {
+				return null;
+			}
+			if (segments.length == 2) {
+				return new Target(table, null);
+			}
+			try {
+				return new Target(table, Integer.valueOf(segments[2]));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		static ResourceTable tableOf(String path) {
+			String[] segments = path.split("/");
+			if (segments.length < 2 || !segments[0].isEmpty()) {
+				return null;
+			}
+			return ResourceTables.byName(segments[1]);
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import af.cmr.indyli.akdemia.business.dto.full.EmployeeFullDTO;
+import af.cmr.indyli.akdemia.business.service.IEmployeeService;
+import af.cmr.indyli.akdemia.business.utils.ConstsValues;
+import af.cmr.indyli.akdemia.ws.dto.BatchResultDTO;
+import af.cmr.indyli.akdemia.ws.dto.ImportReportDTO;
+import af.cmr.indyli.akdemia.ws.utils.CsvReader;
+import af.cmr.indyli.akdemia.ws.utils.CsvReader.MalformedCsvException;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+import jakarta.annotation.Resource;
+
+/**
+ * Imports the employees of a company from a CSV file.
+ * <p>
+ * The file is parsed while it is received: rows are validated one by one and
+ * the valid ones are created by batches of
+ * {@code akdemia.application.import.batch-size} through the
+ * {@link BatchExecutor}. The next rows are only read once a batch is written,
+ * so a client sending faster than the database can absorb is slowed down by
+ * the connection itself, and memory use does not depend on the size of the
+ * file.
+ * <p>
+ * The first record is the header, naming the columns in any order:
+ * {@code email}, {@code firstname} and {@code lastname} are required,
+ * {@code gender}, {@code highestDiploma}, {@code birthDate} (yyyy-MM-dd or
+ * dd/MM/yyyy), {@code phone} and {@code address} are optional.
+ */
+@Component
+public class EmployeeImportService {
+
+	private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+	private static final DateTimeFormatter FRENCH_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+	private static final int MAX_RECORD_LENGTH = 8192;
+
+	private static final Map<String, Column> COLUMNS = Map.of("email", new Column("email", 100, true),
+			"firstname", new Column("firstname", 100, true), "lastname", new Column("lastname", 100, true),
+			"gender", new Column("gender", 100, false), "highestdiploma", new Column("highestDiploma", 100, false),
+			"birthdate", new Column("birthDate", 10, false), "phone", new Column("phone", 50, false),
+			"address", new Column("address", 50, false));
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ObjectMapper objectMapper;
+	private final BatchExecutor batchExecutor;
+	private final ResourceVersions resourceVersions;
+	private final int batchSize;
+	private final int maxErrors;
+
+	@Resource(name = ConstsValues.ServiceKeys.EMPLOYEE_SERVICE_KEY)
+	private IEmployeeService employeeService;
+
+	/**
+	 * Constructor to initialize the EmployeeImportService.
+	 *
+	 * @param jdbcTemplate     JdbcTemplate used to check the companies and the
+	 *                         emails.
+	 * @param objectMapper     ObjectMapper building the employees from the rows.
+	 * @param batchExecutor    BatchExecutor creating the employees.
+	 * @param resourceVersions ResourceVersions recording the import.
+	 * @param batchSize        Number of rows created together.
+	 * @param maxErrors        Maximum number of errors listed in a report.
+	 */
+	public EmployeeImportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, BatchExecutor batchExecutor,
+			ResourceVersions resourceVersions, @Value("${akdemia.application.import.batch-size:200}") int batchSize,
+			@Value("${akdemia.application.import.max-errors:1000}") int maxErrors) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.objectMapper = objectMapper;
+		this.batchExecutor = batchExecutor;
+		this.resourceVersions = resourceVersions;
+		this.batchSize = batchSize;
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Imports employees into a company.
+	 *
+	 * @param companyId Identifier of the company.
+	 * @param content   The CSV file.
+	 * @param charset   The encoding of the file.
+	 * @param delimiter The character separating the fields.
+	 * @return The report of the import, or null if the company does not exist.
+	 * @throws IOException             If the file cannot be read.
+	 * @throws InvalidImportException If the header of the file is invalid.
+	 */
+	public ImportReportDTO importEmployees(int companyId, InputStream content, Charset charset, char delimiter)
+			throws IOException {
+		Integer companies = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM akdemia_company WHERE ID = ?",
+				Integer.class, companyId);
+		if (companies == null || companies == 0) {
+			return null;
+		}
+		CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(content, charset)), delimiter,
+				MAX_RECORD_LENGTH);
+		List<Column> header;
+		try {
+			header = header(reader.next());
+		} catch (MalformedCsvException e) {
+			throw new InvalidImportException("Invalid header: " + e.getMessage());
+		}
+
+		ImportReportDTO report = new ImportReportDTO(maxErrors);
+		Set<String> emails = new HashSet<>();
+		Map<Integer, ObjectNode> batch = new LinkedHashMap<>();
+		try {
+			for (List<String> record = reader.next(); record != null; record = reader.next()) {
+				report.addRow();
+				ObjectNode row = validate(reader.getRecordLine(), header, record, emails, report);
+				if (row != null) {
+					row.putObject("company").put("id", companyId);
+					batch.put(reader.getRecordLine(), row);
+				}
+				if (batch.size() == batchSize) {
+					flush(batch, report);
+				}
+			}
+			report.complete();
+		} catch (MalformedCsvException e) {
+			report.addRejected(e.getLine(), null, e.getMessage() + ", the rest of the file was not read");
+		} finally {
+			flush(batch, report);
+		}
+		return report;
+	}
+
+	private static List<Column> header(List<String> record) {
+		if (record == null) {
+			throw new InvalidImportException("The file is empty");
+		}
+		List<Column> header = new ArrayList<>(record.size());
+		for (String name : record) {
+			String key = name.replace("\uFEFF", "").replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+			Column column = COLUMNS.get(key);
+			if (column == null) {
+				throw new InvalidImportException("Unknown column " + name.trim() + ", expected " + COLUMNS.keySet());
+			}
+			if (header.contains(column)) {
+				throw new InvalidImportException("Duplicate column " + name.trim());
+			}
+			header.add(column);
+		}
+		for (Column column : COLUMNS.values()) {
+			if (column.required() && !header.contains(column)) {
+				throw new InvalidImportException("Missing column " + column.property());
+			}
+		}
+		return header;
+	}
+
+	private ObjectNode validate(int line, List<Column> header, List<String> record, Set<String> emails,
+			ImportReportDTO report) {
+		if (record.size() != header.size()) {
+			report.addRejected(line, null, "Expected " + header.size() + " fields, found " + record.size());
+			return null;
+		}
+		ObjectNode row = objectMapper.createObjectNode();
+		for (int i = 0; i < header.size(); i++) {
+			Column column = header.get(i);
+			String value = record.get(i).trim();
+			if (value.isEmpty()) {
+				if (column.required()) {
+					report.addRejected(line, column.property(), "Missing value");
+					return null;
+				}
+				continue;
+			}
+			if ("birthDate".equals(column.property())) {
+				value = isoDate(value);
+				if (value == null) {
+					report.addRejected(line, column.property(), "Invalid date, expected yyyy-MM-dd or dd/MM/yyyy");
+					return null;
+				}
+			}
+			if (value.length() > column.maxLength()) {
+				report.addRejected(line, column.property(), "Longer than " + column.maxLength() + " characters");
+				return null;
+			}
+			row.put(column.property(), value);
+		}
+		String email = row.get("email").asText();
+		if (!EMAIL.matcher(email).matches()) {
+			report.addRejected(line, "email", "Invalid email");
+			return null;
+		}
+		if (!emails.add(email.toLowerCase(Locale.ROOT))) {
+			report.addRejected(line, "email", "Email already used on a previous row");
+			return null;
+		}
+		return row;
+	}
+
+	private static String isoDate(String value) {
+		try {
+			return value.contains("/") ? LocalDate.parse(value, FRENCH_DATE).toString()
+					: LocalDate.parse(value).toString();
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
+	private void flush(Map<Integer, ObjectNode> batch, ImportReportDTO report) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Set<String> existing = existingEmails(batch.values());
+		List<Integer> lines = new ArrayList<>(batch.size());
+		List<EmployeeFullDTO> employees = new ArrayList<>(batch.size());
+		for (Map.Entry<Integer, ObjectNode> entry : batch.entrySet()) {
+			if (existing.contains(entry.getValue().get("email").asText().toLowerCase(Locale.ROOT))) {
+				report.addRejected(entry.getKey(), "email", "Email already used by another user");
+				continue;
+			}
+			try {
+				employees.add(objectMapper.treeToValue(entry.getValue(), EmployeeFullDTO.class));
+				lines.add(entry.getKey());
+			} catch (JsonProcessingException e) {
+				report.addRejected(entry.getKey(), null, e.getOriginalMessage());
+			}
+		}
+		batch.clear();
+
+		List<BatchResultDTO<EmployeeFullDTO>> results = batchExecutor.execute(employees, employeeService::create);
+		for (BatchResultDTO<EmployeeFullDTO> result : results) {
+			if (result.getError() == null) {
+				report.addImported();
+			} else {
+				report.addRejected(lines.get(result.getIndex()), null, result.getError());
+			}
+		}
+		resourceVersions.increment(ResourceTables.EMPLOYEES);
+	}
+
+	private Set<String> existingEmails(Iterable<ObjectNode> rows) {
+		List<String> emails = new ArrayList<>();
+		for (ObjectNode row : rows) {
+			emails.add(row.get("email").asText());
+		}
+		if (emails.isEmpty()) {
+			return Collections.emptySet();
+		}
+		String placeholders = SqlValues.placeholders(emails.size());
+		Set<String> existing = new HashSet<>();
+		jdbcTemplate.query("SELECT EMAIL FROM akdemia_user WHERE EMAIL IN (" + placeholders + ")", rs -> {
+			existing.add(rs.getString(1).toLowerCase(Locale.ROOT));
+		}, emails.toArray());
+		return existing;
+	}
+
+	/**
+	 * A column of the file and the property of the employee it is read into.
+	 */
+	private record Column(String property, int maxLength, boolean required) {
+	}
+
+	/**
+	 * Thrown when the file cannot be imported at all, e.g. when its header is
+	 * invalid. Nothing has been imported when it is thrown.
+	 */
+	public static class InvalidImportException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor to initialize the InvalidImportException.
+		 *
+		 * @param message The reason why the file cannot be imported.
+		 */
+		public InvalidImportException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.dto.EmployeeListDTO;
+
+/**
+ * Service class listing the employees with a single joined query, rather than
+ * loading the company and the subscriptions of every employee one by one.
+ */
+@Component
+public class EmployeeQueryService {
+
+	private static final String LIST = "SELECT t.ID, t.FIRSTNAME, t.LASTNAME, t.GENDER, u.EMAIL, u.PHONE,"
+			+ " t.ID_AKDEMIA_COMPANY, c.NAME AS COMPANY_NAME FROM akdemia_employee t"
+			+ " JOIN akdemia_user u ON u.ID = t.ID LEFT JOIN akdemia_company c ON c.ID = t.ID_AKDEMIA_COMPANY";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Constructor to initialize the EmployeeQueryService.
+	 *
+	 * @param jdbcTemplate JdbcTemplate used to read the employees.
+	 */
+	public EmployeeQueryService(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Lists all the employees, ordered by ID.
+	 *
+	 * @return The employees, with the name of their company.
+	 */
+	public List<EmployeeListDTO> findAll() {
+		return jdbcTemplate.query(LIST + " ORDER BY t.ID",
+				(rs, rowNum) -> new EmployeeListDTO(rs.getInt("ID"), rs.getString("FIRSTNAME"),
+						rs.getString("LASTNAME"), rs.getString("GENDER"), rs.getString("EMAIL"), rs.getString("PHONE"),
+						rs.getObject("ID_AKDEMIA_COMPANY", Integer.class), rs.getString("COMPANY_NAME")));
+	}
+}
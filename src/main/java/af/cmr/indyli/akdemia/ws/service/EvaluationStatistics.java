@@ -0,0 +1,262 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.dto.EvaluationStatsDTO;
+import af.cmr.indyli.akdemia.ws.dto.ScoreStatsDTO;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+
+/**
+ * Running statistics of the evaluations behind {@code /sessions/{id}/stats},
+ * {@code /trainers/{id}/stats} and {@code /trainings/{id}/stats}.
+ * <p>
+ * Every session, trainer and training keeps the number of its evaluations and,
+ * for the session and the trainer scores, their count, sum, sum of squares and
+ * histogram, from which the mean and the variance are derived exactly. An
+ * evaluation counts for its session and for the trainer and the training of
+ * that session, so that writing it only adds or takes its scores from three
+ * running totals instead of reading all the evaluations again. The statistics
+ * are built from the database on their first use. Controllers writing
+ * evaluations must call {@link #reindex(Collection)} after the write, and those
+ * writing sessions {@link #reindexSession(int)}, since the trainer or the
+ * training of a session may change.
+ */
+@Component
+public class EvaluationStatistics {
+
+	private static final String EVALUATIONS = "SELECT e.ID, e.ID_AKDEMIA_SESSION, s.ID_AKDEMIA_TRAINER,"
+			+ " s.ID_AKDEMIA_TRAINING, e.SESSION_SCORE, e.TRAINER_SCORE FROM akdemia_evaluation e"
+			+ " JOIN akdemia_session s ON s.ID = e.ID_AKDEMIA_SESSION";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Contribution> evaluations = new HashMap<>();
+	private final Map<Integer, Set<Integer>> evaluationsBySession = new HashMap<>();
+	private final Map<Integer, Stats> bySession = new HashMap<>();
+	private final Map<Integer, Stats> byTrainer = new HashMap<>();
+	private final Map<Integer, Stats> byTraining = new HashMap<>();
+	private volatile boolean built;
+
+	/**
+	 * Constructor to initialize the EvaluationStatistics.
+	 *
+	 * @param jdbcTemplate JdbcTemplate reading the evaluations.
+	 */
+	public EvaluationStatistics(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Reads the statistics of the evaluations of a session.
+	 *
+	 * @param sessionId Identifier of the session.
+	 * @return The statistics, without evaluations if the session has none.
+	 */
+	public EvaluationStatsDTO ofSession(int sessionId) {
+		return of(bySession, sessionId);
+	}
+
+	/**
+	 * Reads the statistics of the evaluations of the sessions of a trainer.
+	 *
+	 * @param trainerId Identifier of the trainer.
+	 * @return The statistics, without evaluations if the trainer has none.
+	 */
+	public EvaluationStatsDTO ofTrainer(int trainerId) {
+		return of(byTrainer, trainerId);
+	}
+
+	/**
+	 * Reads the statistics of the evaluations of the sessions of a training.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @return The statistics, without evaluations if the training has none.
+	 */
+	public EvaluationStatsDTO ofTraining(int trainingId) {
+		return of(byTraining, trainingId);
+	}
+
+	/**
+	 * Reads again evaluations after they were created, updated or deleted.
+	 *
+	 * @param evaluationIds Identifiers of the evaluations, null ones being
+	 *                      ignored.
+	 */
+	public void reindex(Collection<Integer> evaluationIds) {
+		lock.writeLock().lock();
+		try {
+			// not built yet: the first use will read the evaluations as written
+			if (built) {
+				reload(evaluationIds.stream().filter(Objects::nonNull)
+						.collect(Collectors.toCollection(LinkedHashSet::new)));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads again the evaluations of a session after the session was updated or
+	 * deleted.
+	 *
+	 * @param sessionId Identifier of the session.
+	 */
+	public void reindexSession(int sessionId) {
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				reload(new LinkedHashSet<>(evaluationsBySession.getOrDefault(sessionId, Collections.emptySet())));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private EvaluationStatsDTO of(Map<Integer, Stats> stats, int id) {
+		build();
+		lock.readLock().lock();
+		try {
+			return stats.getOrDefault(id, new Stats()).toDTO();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				jdbcTemplate.query(EVALUATIONS, rs -> {
+					add(rs.getInt(1), new Contribution(rs.getInt(2), (Integer) rs.getObject(3),
+							(Integer) rs.getObject(4), (Integer) rs.getObject(5), (Integer) rs.getObject(6)));
+				});
+				built = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void reload(Collection<Integer> evaluationIds) {
+		if (evaluationIds.isEmpty()) {
+			return;
+		}
+		evaluationIds.forEach(this::remove);
+		jdbcTemplate.query(EVALUATIONS + " WHERE e.ID IN ("
+				+ SqlValues.placeholders(evaluationIds.size()) + ")", rs -> {
+					add(rs.getInt(1), new Contribution(rs.getInt(2), (Integer) rs.getObject(3),
+							(Integer) rs.getObject(4), (Integer) rs.getObject(5), (Integer) rs.getObject(6)));
+				}, evaluationIds.toArray());
+	}
+
+	private void add(int evaluationId, Contribution contribution) {
+		evaluations.put(evaluationId, contribution);
+		evaluationsBySession.computeIfAbsent(contribution.session(), key -> new LinkedHashSet<>()).add(evaluationId);
+		apply(contribution, 1);
+	}
+
+	private void remove(int evaluationId) {
+		Contribution contribution = evaluations.remove(evaluationId);
+		if (contribution == null) {
+			return;
+		}
+		Set<Integer> linked = evaluationsBySession.get(contribution.session());
+		linked.remove(evaluationId);
+		if (linked.isEmpty()) {
+			evaluationsBySession.remove(contribution.session());
+		}
+		apply(contribution, -1);
+	}
+
+	private void apply(Contribution contribution, int sign) {
+		apply(bySession, contribution.session(), contribution, sign);
+		apply(byTrainer, contribution.trainer(), contribution, sign);
+		apply(byTraining, contribution.training(), contribution, sign);
+	}
+
+	private static void apply(Map<Integer, Stats> stats, Integer id, Contribution contribution, int sign) {
+		if (id == null) {
+			return;
+		}
+		Stats totals = stats.computeIfAbsent(id, key -> new Stats());
+		totals.evaluations += sign;
+		totals.sessionScore.apply(contribution.sessionScore(), sign);
+		totals.trainerScore.apply(contribution.trainerScore(), sign);
+		if (totals.evaluations == 0) {
+			stats.remove(id);
+		}
+	}
+
+	/**
+	 * What an evaluation adds to the statistics, as it was read: its session,
+	 * the trainer and the training of that session, and its scores.
+	 */
+	private record Contribution(int session, Integer trainer, Integer training, Integer sessionScore,
+			Integer trainerScore) {
+	}
+
+	/**
+	 * Running totals of the evaluations of a session, a trainer or a training.
+	 */
+	private static final class Stats {
+
+		private long evaluations;
+		private final Score sessionScore = new Score();
+		private final Score trainerScore = new Score();
+
+		private EvaluationStatsDTO toDTO() {
+			return new EvaluationStatsDTO(evaluations, sessionScore.toDTO(), trainerScore.toDTO());
+		}
+	}
+
+	/**
+	 * Running totals of one score. Scores being integers, the sums are exact and
+	 * a score is taken away as precisely as it was added.
+	 */
+	private static final class Score {
+
+		private long count;
+		private long sum;
+		private long sumOfSquares;
+		private final TreeMap<Integer, Long> histogram = new TreeMap<>();
+
+		private void apply(Integer score, int sign) {
+			if (score == null) {
+				return;
+			}
+			count += sign;
+			sum += sign * (long) score;
+			sumOfSquares += sign * (long) score * score;
+			if (histogram.merge(score, (long) sign, Long::sum) == 0) {
+				histogram.remove(score);
+			}
+		}
+
+		private ScoreStatsDTO toDTO() {
+			if (count == 0) {
+				return new ScoreStatsDTO(0, null, null, Collections.emptyMap());
+			}
+			double mean = (double) sum / count;
+			double variance = (double) (count * sumOfSquares - sum * sum) / ((double) count * count);
+			return new ScoreStatsDTO(count, mean, variance,
+					Collections.unmodifiableMap(new LinkedHashMap<>(histogram)));
+		}
+	}
+}
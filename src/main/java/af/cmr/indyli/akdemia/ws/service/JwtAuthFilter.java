@@ -1,15 +1,23 @@
 package af.cmr.indyli.akdemia.ws.service;
 
 import java.io.IOException;
+import java.util.List;
 
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import af.cmr.indyli.akdemia.business.service.IUserService;
+import af.cmr.indyli.akdemia.ws.service.UserDetailsCache.CachedUser;
+import af.cmr.indyli.akdemia.ws.utils.AkdemiaUrlBase;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,22 +25,72 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Custom JWT authentication filter to process JWT tokens in the incoming requests.
+ * <p>
+ * In {@code stateless} mode the principal is built from the signed claims of the
+ * token, without any database access. In {@code strict} mode, and for the paths
+ * listed in {@code akdemia.application.jwt.authentication.strict-paths}, the user
+ * is reloaded through the {@link UserDetailsCache} so that disabled or locked accounts
+ * and role changes take effect immediately.
+ * <p>
+ * The authorities are not compiled per request: the cached user carries its
+ * {@link CompiledAuthorities}, and the role lists of the tokens are compiled
+ * once by the {@link AuthorityRegistry}.
+ * <p>
+ * CORS preflight requests and the public paths of {@link AkdemiaUrlBase#publicPaths}
+ * skip the filter entirely.
  */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+	/**
+	 * Authentication mode value for which the principal is built from the token.
+	 */
+	public static final String STATELESS_MODE = "stateless";
+
 	private final JwtService jwtService;
-	private final IUserService userDetailsService;
+	private final UserDetailsCache userDetailsService;
+	private final AuthorityRegistry authorityRegistry;
+	private final boolean stateless;
+	private final List<String> strictPaths;
+	private final PathMatcher pathMatcher = new AntPathMatcher();
 
 	/**
 	 * Constructor to initialize the JwtAuthFilter.
 	 *
-	 * @param jwtService        JwtService instance for handling JWT-related operations.
-	 * @param userDetailsService IUserService instance for user details service.
+	 * @param jwtService         JwtService instance for handling JWT-related operations.
+	 * @param userDetailsService UserDetailsCache instance for cached user details service.
+	 * @param authorityRegistry  AuthorityRegistry compiling the authorities into bitsets.
+	 * @param mode               Authentication mode, {@code stateless} or {@code strict}.
+	 * @param strictPaths        Ant patterns for which the user is always reloaded.
 	 */
-	public JwtAuthFilter(JwtService jwtService, IUserService userDetailsService) {
+	public JwtAuthFilter(JwtService jwtService, UserDetailsCache userDetailsService, AuthorityRegistry authorityRegistry,
+			@Value("${akdemia.application.jwt.authentication.mode:strict}") String mode,
+			@Value("${akdemia.application.jwt.authentication.strict-paths:}") List<String> strictPaths) {
 		this.jwtService = jwtService;
 		this.userDetailsService = userDetailsService;
+		this.authorityRegistry = authorityRegistry;
+		this.stateless = STATELESS_MODE.equalsIgnoreCase(mode);
+		this.strictPaths = strictPaths;
+	}
+
+	/**
+	 * Skips CORS preflight requests and public paths, which need no authentication.
+	 *
+	 * @param request HttpServletRequest instance representing the incoming request.
+	 * @return True if the request does not need to be authenticated.
+	 */
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+			return true;
+		}
+		String path = request.getServletPath();
+		for (String pattern : AkdemiaUrlBase.publicPaths) {
+			if (pathMatcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -48,19 +106,32 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 		String authHeader = request.getHeader("Authorization");
-		String token = null;
-		String email = null;
+		VerifiedToken token = null;
 
 		if (authHeader != null && authHeader.startsWith("Bearer ")) {
-			token = authHeader.substring(7);
-			email = jwtService.extractUsername(token);
+			token = jwtService.verifyToken(authHeader.substring(7));
 		}
 
-		if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-			UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+		if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+			UserDetails userDetails;
+			CompiledAuthorities compiledAuthorities;
+			if (isStrict(request)) {
+				CachedUser user = userDetailsService.loadUserByUsername(token.getSubject());
+				if (!user.isEnabled() || !user.isAccountNonLocked()) {
+					// like at login and refresh, a disabled or locked account is not authenticated
+					filterChain.doFilter(request, response);
+					return;
+				}
+				userDetails = user;
+				compiledAuthorities = user.getCompiledAuthorities();
+			} else {
+				List<String> roles = token.getRoles();
+				userDetails = fromClaims(token.getSubject(), roles);
+				compiledAuthorities = authorityRegistry.compileRoles(roles);
+			}
 			if (jwtService.validateToken(token, userDetails)) {
-				UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails,
-						null, userDetails.getAuthorities());
+				AkdemiaAuthenticationToken authToken = new AkdemiaAuthenticationToken(userDetails,
+						userDetails.getAuthorities(), compiledAuthorities, token.getUserId());
 				authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 				SecurityContextHolder.getContext().setAuthentication(authToken);
 			}
@@ -68,4 +139,22 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
 		filterChain.doFilter(request, response);
 	}
+
+	private boolean isStrict(HttpServletRequest request) {
+		if (!stateless) {
+			return true;
+		}
+		String path = request.getServletPath();
+		for (String pattern : strictPaths) {
+			if (pathMatcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static UserDetails fromClaims(String subject, List<String> roles) {
+		List<GrantedAuthority> authorities = roles.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+		return new User(subject, "", authorities);
+	}
 }
@@ -5,6 +5,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +14,8 @@ import org.springframework.stereotype.Component;
 
 import af.cmr.indyli.akdemia.business.dto.full.UserFullDTO;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -24,8 +27,39 @@ import io.jsonwebtoken.security.Keys;
 @Component
 public class JwtService {
 
-	@Value("${akdemia.application.jwt.key.secret}")
-	private String keySecret;
+	/**
+	 * Claim telling access tokens and refresh tokens apart.
+	 */
+	public static final String TYPE_CLAIM = "type";
+
+	/**
+	 * Value of the {@link #TYPE_CLAIM} claim for refresh tokens.
+	 */
+	public static final String REFRESH_TOKEN_TYPE = "refresh";
+
+	private static final long ACCESS_TOKEN_VALIDITY_MILLIS = 1000 * 60 * 60;
+
+	private final Key signKey;
+	private final JwtParser parser;
+	private final long refreshTokenValidityMillis;
+	private final TokenRevocationStore revocationStore;
+
+	/**
+	 * Constructor to initialize the JwtService. The signing key and the parser
+	 * are built once here and reused for every token.
+	 *
+	 * @param keySecret                 Base64 encoded secret used to sign the tokens.
+	 * @param refreshTokenValidityHours Validity of the refresh tokens, in hours.
+	 * @param revocationStore           TokenRevocationStore holding the revoked tokens.
+	 */
+	public JwtService(@Value("${akdemia.application.jwt.key.secret}") String keySecret,
+			@Value("${akdemia.application.jwt.refresh-token.validity-hours:168}") long refreshTokenValidityHours,
+			TokenRevocationStore revocationStore) {
+		this.refreshTokenValidityMillis = refreshTokenValidityHours * 60 * 60 * 1000;
+		this.revocationStore = revocationStore;
+		this.signKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(keySecret));
+		this.parser = Jwts.parserBuilder().setSigningKey(signKey).build();
+	}
 
 	/**
 	 * Generates a JWT token for the specified user and roles.
@@ -35,25 +69,128 @@ public class JwtService {
 	 * @return Generated JWT token.
 	 */
 	public String generateToken(UserFullDTO user, List<String> roles) {
+		return generateToken(user.getId(), user.getEmail(), roles);
+	}
+
+	/**
+	 * Generates a JWT token for the user with the specified identifier, email and roles.
+	 *
+	 * @param id    Identifier of the user.
+	 * @param email Email of the user, used as the subject of the token.
+	 * @param roles List of roles associated with the user.
+	 * @return Generated JWT token.
+	 */
+	public String generateToken(Integer id, String email, List<String> roles) {
 		Map<String, Object> claims = new HashMap<>();
 		claims.put("roles", roles);
-		claims.put("id", user.getId());
-		return createToken(claims, user.getEmail());
+		claims.put("id", id);
+		return createToken(claims, email, ACCESS_TOKEN_VALIDITY_MILLIS);
 	}
 
-	private String createToken(Map<String, Object> claims, String userName) {
+	/**
+	 * Generates a refresh token, only accepted by
+	 * {@link #verifyRefreshToken(String)}, for the specified user.
+	 *
+	 * @param id    Identifier of the user.
+	 * @param email Email of the user, used as the subject of the token.
+	 * @return Generated refresh token.
+	 */
+	public String generateRefreshToken(Integer id, String email) {
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+		claims.put("id", id);
+		return createToken(claims, email, refreshTokenValidityMillis);
+	}
+
+	/**
+	 * @return The longest validity of the tokens issued by this service, in milliseconds.
+	 */
+	public long getMaxTokenValidityMillis() {
+		return Math.max(ACCESS_TOKEN_VALIDITY_MILLIS, refreshTokenValidityMillis);
+	}
+
+	private String createToken(Map<String, Object> claims, String userName, long validityMillis) {
+		long now = System.currentTimeMillis();
 		return Jwts.builder()
 				.setClaims(claims)
+				.setId(UUID.randomUUID().toString())
 				.setSubject(userName)
-				.setIssuedAt(new Date(System.currentTimeMillis()))
-				.setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60))
-				.signWith(getSignKey(), SignatureAlgorithm.HS256)
+				.setIssuedAt(new Date(now))
+				.setExpiration(new Date(now + validityMillis))
+				.signWith(signKey, SignatureAlgorithm.HS256)
 				.compact();
 	}
 
-	private Key getSignKey() {
-		byte[] keyBytes = Decoders.BASE64.decode(keySecret);
-		return Keys.hmacShaKeyFor(keyBytes);
+	/**
+	 * Parses and verifies the given JWT access token exactly once. Malformed,
+	 * badly signed, expired, not yet valid and revoked tokens as well as refresh
+	 * tokens are reported by a null result rather than an exception.
+	 *
+	 * @param token JWT token to verify.
+	 * @return The verified token, or null if the token is not acceptable.
+	 */
+	public VerifiedToken verifyToken(String token) {
+		VerifiedToken verified = verify(token);
+		return verified == null || verified.isRefreshToken() ? null : verified;
+	}
+
+	/**
+	 * Parses and verifies the given refresh token, see {@link #verifyToken(String)}.
+	 *
+	 * @param token Refresh token to verify.
+	 * @return The verified token, or null if the token is not an acceptable refresh token.
+	 */
+	public VerifiedToken verifyRefreshToken(String token) {
+		VerifiedToken verified = verify(token);
+		return verified == null || !verified.isRefreshToken() ? null : verified;
+	}
+
+	/**
+	 * Revokes a token, which will be rejected from now on.
+	 *
+	 * @param token The verified token to revoke.
+	 * @return True if this call revoked the token, false if it was already
+	 *         revoked, has expired or has no id.
+	 */
+	public boolean revoke(VerifiedToken token) {
+		return revocationStore.revoke(token.getTokenId(), token.getExpiration().getTime());
+	}
+
+	/**
+	 * Revokes every token issued so far to a user, to the second, see
+	 * {@link TokenRevocationStore#revokeAll(String, long)}.
+	 *
+	 * @param email Email of the user.
+	 */
+	public void revokeAll(String email) {
+		revocationStore.revokeAll(email, getMaxTokenValidityMillis());
+	}
+
+	private VerifiedToken verify(String token) {
+		if (!looksLikeJws(token)) {
+			return null;
+		}
+		Claims claims;
+		try {
+			claims = parser.parseClaimsJws(token).getBody();
+		} catch (JwtException | IllegalArgumentException e) {
+			// including ExpiredJwtException and PrematureJwtException: exp and nbf are checked by the parser
+			return null;
+		}
+		if (claims.getSubject() == null || claims.getExpiration() == null) {
+			return null;
+		}
+		VerifiedToken verified = new VerifiedToken(token, claims);
+		return revocationStore.isRevoked(verified) ? null : verified;
+	}
+
+	private static boolean looksLikeJws(String token) {
+		if (token == null || token.isEmpty()) {
+			return false;
+		}
+		int first = token.indexOf('.');
+		int last = token.lastIndexOf('.');
+		return first > 0 && last > first + 1 && last < token.length() - 1;
 	}
 
 	/**
@@ -90,11 +227,11 @@ public class JwtService {
 	}
 
 	private Claims extractAllClaims(String token) {
-		return Jwts.parserBuilder().setSigningKey(getSignKey()).build().parseClaimsJws(token).getBody();
+		return parser.parseClaimsJws(token).getBody();
 	}
 
-	private Boolean isTokenExpired(String token) {
-		return extractExpiration(token).before(new Date());
+	private Boolean isTokenExpired(Date expiration) {
+		return expiration == null || expiration.before(new Date());
 	}
 
 	/**
@@ -105,7 +242,19 @@ public class JwtService {
 	 * @return True if the token is valid for the specified user, otherwise false.
 	 */
 	public Boolean validateToken(String token, UserDetails userDetails) {
-		final String username = extractUsername(token);
-		return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+		final Claims claims = extractAllClaims(token);
+		return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims.getExpiration()));
+	}
+
+	/**
+	 * Validates an already verified token against the provided UserDetails
+	 * without parsing it again.
+	 *
+	 * @param token       Token previously returned by {@link #verifyToken(String)}.
+	 * @param userDetails UserDetails representing the user details.
+	 * @return True if the token is valid for the specified user, otherwise false.
+	 */
+	public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+		return token.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(token.getExpiration());
 	}
 }
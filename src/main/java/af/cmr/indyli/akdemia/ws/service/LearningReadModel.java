@@ -0,0 +1,248 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.dto.LearningDTO;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-user read model behind {@code /users/me/learning}: the subscriptions of a
+ * learner with their sessions and trainings, and its evaluations.
+ * <p>
+ * A learner's model is built on its first read with two queries, one per kind
+ * of row, each answering for employees and particulars alike, and kept until a
+ * subscription or an evaluation of that learner is written. Controllers writing
+ * those rows must call {@link #evictOwners(ResourceTable, Collection)} before
+ * the write and {@link #evictOwners(ResourceTable, Collection, Collection)}
+ * after it. Entries are evicted in least recently used order once
+ * {@code akdemia.application.learning.max-size} is reached and expire after
+ * {@code ttl-seconds}, which bounds how long a change made to a session itself
+ * takes to show. Which sessions are upcoming is decided on every read.
+ */
+@Component
+public class LearningReadModel {
+
+	private static final String CACHE_NAME = "learning";
+
+	private static final String SUBSCRIPTIONS = "SELECT t.ID AS id, t.STATUS AS status,"
+			+ " t.CREATION_DATE AS creationDate, s.ID AS sessionId, s.CODE AS sessionCode, s.DATE AS sessionDate,"
+			+ " s.LACATION AS sessionLocation, s.DURATION AS sessionDuration, s.STATUS AS sessionStatus,"
+			+ " s.ID_AKDEMIA_TRAINING AS trainingId, tr.TITLE AS trainingTitle FROM %s t"
+			+ " JOIN akdemia_session s ON s.ID = t.%s"
+			+ " LEFT JOIN akdemia_training tr ON tr.ID = s.ID_AKDEMIA_TRAINING WHERE t.%s = ?";
+
+	private static final String EVALUATIONS = "SELECT t.ID AS id, t.SESSION_SCORE AS sessionScore,"
+			+ " t.TRAINER_SCORE AS trainerScore, t.CREATION_DATE AS creationDate, s.ID AS sessionId,"
+			+ " s.CODE AS sessionCode, s.DATE AS sessionDate, tr.TITLE AS trainingTitle FROM akdemia_evaluation t"
+			+ " JOIN akdemia_session s ON s.ID = t.ID_AKDEMIA_SESSION"
+			+ " LEFT JOIN akdemia_training tr ON tr.ID = s.ID_AKDEMIA_TRAINING WHERE t.%s = ?";
+
+	private static final String LEARNER_SUBSCRIPTIONS = String.format(SUBSCRIPTIONS,
+			"akdemia_employee_souscription", "ID_AKDEMIA_INTRA_SESSION", "ID_AKDEMIA_EMPLOYEE") + " UNION ALL "
+			+ String.format(SUBSCRIPTIONS, "akdemia_particular_souscription", "ID_AKDEMIA_INTER_SESSION",
+					"ID_AKDEMIA_PARTICULAR")
+			+ " ORDER BY sessionDate, id";
+
+	private static final String LEARNER_EVALUATIONS = String.format(EVALUATIONS, "ID_AKDEMIA_EMPLOYEE")
+			+ " UNION ALL " + String.format(EVALUATIONS, "ID_AKDEMIA_PARTICULAR")
+			+ " ORDER BY creationDate DESC, id DESC";
+
+	private static final Map<ResourceTable, String> OWNERS = Map.of(ResourceTables.EMPLOYEE_SUBSCRIPTIONS,
+			"t.ID_AKDEMIA_EMPLOYEE", ResourceTables.PARTICULAR_SUBSCRIPTIONS, "t.ID_AKDEMIA_PARTICULAR",
+			ResourceTables.EVALUATIONS, "COALESCE(t.ID_AKDEMIA_EMPLOYEE, t.ID_AKDEMIA_PARTICULAR)");
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<Integer, Entry> entries;
+	private long generation;
+
+	private final Counter hits;
+	private final Counter misses;
+
+	/**
+	 * Constructor to initialize the LearningReadModel.
+	 *
+	 * @param jdbcTemplate  JdbcTemplate reading the subscriptions and the
+	 *                      evaluations.
+	 * @param meterRegistry MeterRegistry receiving the cache metrics.
+	 * @param maxSize       Maximum number of learners kept.
+	 * @param ttlSeconds    Time to live of the model of a learner, in seconds.
+	 */
+	public LearningReadModel(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+			@Value("${akdemia.application.learning.max-size:1000}") int maxSize,
+			@Value("${akdemia.application.learning.ttl-seconds:300}") long ttlSeconds) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlSeconds * 1000;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+				.register(meterRegistry);
+		this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+				.register(meterRegistry);
+		Gauge.builder("cache.size", this, LearningReadModel::size).tag("cache", CACHE_NAME).register(meterRegistry);
+	}
+
+	/**
+	 * Reads what a learner follows.
+	 *
+	 * @param userId Identifier of the learner, an employee or a particular.
+	 * @return The subscriptions, upcoming sessions and evaluations of the
+	 *         learner, empty for any other user.
+	 */
+	public LearningDTO getLearning(int userId) {
+		Snapshot snapshot = snapshot(userId);
+		LocalDate today = LocalDate.now();
+		List<Map<String, Object>> upcoming = new ArrayList<>();
+		for (Map<String, Object> session : snapshot.sessions()) {
+			LocalDate date = (LocalDate) session.get("date");
+			if (date != null && !date.isBefore(today)) {
+				upcoming.add(session);
+			}
+		}
+		return new LearningDTO(snapshot.subscriptions(), upcoming, snapshot.evaluations());
+	}
+
+	/**
+	 * Evicts the learners owning some subscriptions or evaluations. Call it
+	 * before writing them and keep the returned owners for
+	 * {@link #evictOwners(ResourceTable, Collection, Collection)} afterwards, so
+	 * that a row moved to another learner or deleted is evicted too.
+	 *
+	 * @param table Description of the written rows: employee or particular
+	 *              subscriptions, or evaluations.
+	 * @param ids   Identifiers of the rows.
+	 * @return The learners owning the rows.
+	 */
+	public List<Integer> evictOwners(ResourceTable table, Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String placeholders = SqlValues.placeholders(ids.size());
+		List<Integer> owners = jdbcTemplate.queryForList("SELECT DISTINCT " + OWNERS.get(table) + " FROM "
+				+ table.getFrom() + " WHERE t.ID IN (" + placeholders + ")", Integer.class, ids.toArray());
+		evict(owners);
+		return owners;
+	}
+
+	/**
+	 * Evicts the learners owning some subscriptions or evaluations after a
+	 * write, as well as those owning them before the write.
+	 *
+	 * @param table          Description of the written rows.
+	 * @param ids            Identifiers of the rows.
+	 * @param previousOwners Owners returned by
+	 *                       {@link #evictOwners(ResourceTable, Collection)}
+	 *                       before the write.
+	 */
+	public void evictOwners(ResourceTable table, Collection<Integer> ids, Collection<Integer> previousOwners) {
+		evict(previousOwners);
+		evictOwners(table, ids);
+	}
+
+	private void evict(Collection<Integer> userIds) {
+		synchronized (entries) {
+			generation++;
+			for (Integer userId : userIds) {
+				entries.remove(userId);
+			}
+		}
+	}
+
+	private Snapshot snapshot(int userId) {
+		long now = System.currentTimeMillis();
+		long loadGeneration;
+		synchronized (entries) {
+			loadGeneration = generation;
+			Entry entry = entries.get(userId);
+			if (entry != null) {
+				if (entry.expiresAt > now) {
+					hits.increment();
+					return entry.snapshot;
+				}
+				entries.remove(userId);
+			}
+		}
+		misses.increment();
+		Snapshot snapshot = load(userId);
+		synchronized (entries) {
+			// a write evicted learners while this one was loading: do not keep what may be stale
+			if (loadGeneration == generation) {
+				entries.put(userId, new Entry(snapshot, now + ttlMillis));
+				trim();
+			}
+		}
+		return snapshot;
+	}
+
+	private Snapshot load(int userId) {
+		List<Map<String, Object>> subscriptions = jdbcTemplate.queryForList(LEARNER_SUBSCRIPTIONS, userId, userId);
+		Map<Object, Map<String, Object>> sessions = new LinkedHashMap<>();
+		for (Map<String, Object> subscription : subscriptions) {
+			sessions.computeIfAbsent(subscription.get("sessionId"), id -> {
+				Map<String, Object> session = new LinkedHashMap<>();
+				session.put("id", id);
+				session.put("code", subscription.get("sessionCode"));
+				session.put("date", SqlValues.localDate(subscription.get("sessionDate")));
+				session.put("location", subscription.get("sessionLocation"));
+				session.put("duration", subscription.get("sessionDuration"));
+				session.put("status", subscription.get("sessionStatus"));
+				session.put("trainingId", subscription.get("trainingId"));
+				session.put("trainingTitle", subscription.get("trainingTitle"));
+				return Collections.unmodifiableMap(session);
+			});
+		}
+		List<Map<String, Object>> evaluations = jdbcTemplate.queryForList(LEARNER_EVALUATIONS, userId, userId);
+		return new Snapshot(readOnly(subscriptions), List.copyOf(sessions.values()), readOnly(evaluations));
+	}
+
+	private static List<Map<String, Object>> readOnly(List<Map<String, Object>> rows) {
+		List<Map<String, Object>> copy = new ArrayList<>(rows.size());
+		for (Map<String, Object> row : rows) {
+			copy.add(Collections.unmodifiableMap(row));
+		}
+		return Collections.unmodifiableList(copy);
+	}
+
+	private void trim() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > maxSize && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * What a learner follows, as read from the database. Sessions are ordered by
+	 * date and keep their date as a {@link LocalDate}.
+	 */
+	private record Snapshot(List<Map<String, Object>> subscriptions, List<Map<String, Object>> sessions,
+			List<Map<String, Object>> evaluations) {
+	}
+
+	private record Entry(Snapshot snapshot, long expiresAt) {
+	}
+}
@@ -0,0 +1,139 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class running the whole login pipeline: the user and its authorities
+ * are loaded once by the {@link AuthenticationManager} (through the
+ * {@link UserDetailsCache}) and reused to mint the token, only the user
+ * identifier being read afterwards through the index on
+ * {@code akdemia_user.EMAIL}.
+ * <p>
+ * Each login hands out a short lived access token and a refresh token. The
+ * refresh token is exchanged for new tokens without any password check, and
+ * rotated on every use.
+ */
+@Component
+public class LoginService {
+
+	private final AuthenticationManager authenticationManager;
+	private final JwtService jwtService;
+	private final JdbcTemplate jdbcTemplate;
+	private final UserDetailsCache userDetailsCache;
+
+	/**
+	 * Constructor to initialize the LoginService.
+	 *
+	 * @param authenticationManager AuthenticationManager checking the credentials.
+	 * @param jwtService            JwtService instance minting the tokens.
+	 * @param jdbcTemplate          JdbcTemplate used to read the user identifier.
+	 * @param userDetailsCache      UserDetailsCache reloading the roles on refresh.
+	 */
+	public LoginService(AuthenticationManager authenticationManager, JwtService jwtService,
+			JdbcTemplate jdbcTemplate, UserDetailsCache userDetailsCache) {
+		this.authenticationManager = authenticationManager;
+		this.jwtService = jwtService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.userDetailsCache = userDetailsCache;
+	}
+
+	/**
+	 * Authenticates a user and generates its JWT tokens.
+	 *
+	 * @param email    Email of the user.
+	 * @param password Clear password of the user.
+	 * @return The access token under {@code token} and the refresh token under
+	 *         {@code refreshToken}, or null if the user could not be authenticated.
+	 * @throws AuthenticationException If the credentials are rejected.
+	 */
+	public Map<String, String> login(String email, String password) throws AuthenticationException {
+		Authentication authentication = authenticationManager
+				.authenticate(new UsernamePasswordAuthenticationToken(email, password));
+		if (!authentication.isAuthenticated()) {
+			return null;
+		}
+		String username = ((UserDetails) authentication.getPrincipal()).getUsername();
+		List<Integer> ids = jdbcTemplate.queryForList("SELECT ID FROM akdemia_user WHERE EMAIL = ?", Integer.class,
+				username);
+		if (ids.isEmpty()) {
+			return null;
+		}
+		return issueTokens(ids.get(0), username, authentication.getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority).toList());
+	}
+
+	/**
+	 * Exchanges a refresh token for a new access token and a new refresh token.
+	 * The roles are reloaded so that role changes are taken into account, and the
+	 * refresh token used is revoked first: of concurrent exchanges of the same
+	 * refresh token, only the one revoking it gets new tokens.
+	 *
+	 * @param refreshToken The refresh token.
+	 * @return The new tokens, or null if the refresh token is not acceptable.
+	 */
+	public Map<String, String> refresh(String refreshToken) {
+		VerifiedToken verified = jwtService.verifyRefreshToken(refreshToken);
+		if (verified == null || verified.getUserId() == null || !jwtService.revoke(verified)) {
+			return null;
+		}
+		UserDetails user;
+		try {
+			user = userDetailsCache.loadUserByUsername(verified.getSubject());
+		} catch (AuthenticationException e) {
+			return null;
+		}
+		if (!user.isEnabled() || !user.isAccountNonLocked()) {
+			return null;
+		}
+		return issueTokens(verified.getUserId(), user.getUsername(),
+				user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+	}
+
+	/**
+	 * Revokes an access token or a refresh token.
+	 *
+	 * @param token The token to revoke.
+	 * @return True if the token was valid and is now revoked.
+	 */
+	public boolean revoke(String token) {
+		VerifiedToken verified = jwtService.verifyToken(token);
+		if (verified == null) {
+			verified = jwtService.verifyRefreshToken(token);
+		}
+		if (verified == null) {
+			return false;
+		}
+		return jwtService.revoke(verified);
+	}
+
+	/**
+	 * Revokes every token issued so far to a user, e.g. after a compromise.
+	 *
+	 * @param userId Identifier of the user.
+	 * @return True if the user exists.
+	 */
+	public boolean revokeAll(int userId) {
+		List<String> emails = jdbcTemplate.queryForList("SELECT EMAIL FROM akdemia_user WHERE ID = ?", String.class,
+				userId);
+		if (emails.isEmpty() || emails.get(0) == null) {
+			return false;
+		}
+		jwtService.revokeAll(emails.get(0));
+		return true;
+	}
+
+	private Map<String, String> issueTokens(Integer id, String email, List<String> roles) {
+		return Map.of("token", jwtService.generateToken(id, email, roles), "refreshToken",
+				jwtService.generateRefreshToken(id, email));
+	}
+}
@@ -0,0 +1,133 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.utils.IntervalTree;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+
+/**
+ * In-memory calendar of the planifications behind
+ * {@code /planifications?from=&to=}.
+ * <p>
+ * Planifications are held in interval trees, one for all of them and one per
+ * company, so that those running during a period are found without reading
+ * the others. The calendar is built from the database on the first query.
+ * Controllers writing planifications must call {@link #reindex(int)} after the
+ * write.
+ */
+@Component
+public class PlanificationCalendar {
+
+	private final ResourceQueryService resourceQueryService;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final IntervalTree<Map<String, Object>> all = new IntervalTree<>();
+	private final Map<Integer, IntervalTree<Map<String, Object>>> byCompany = new HashMap<>();
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private volatile boolean built;
+
+	/**
+	 * Constructor to initialize the PlanificationCalendar.
+	 *
+	 * @param resourceQueryService ResourceQueryService reading the
+	 *                             planifications.
+	 */
+	public PlanificationCalendar(ResourceQueryService resourceQueryService) {
+		this.resourceQueryService = resourceQueryService;
+	}
+
+	/**
+	 * Lists the planifications running during a period, both days included.
+	 *
+	 * @param company Identifier of the company of the planifications, or null for
+	 *                all the companies.
+	 * @param from    First day of the period, or null.
+	 * @param to      Last day of the period, or null.
+	 * @return The planifications, ordered by start date then identifier.
+	 */
+	public List<Map<String, Object>> overlapping(Integer company, LocalDate from, LocalDate to) {
+		build();
+		lock.readLock().lock();
+		try {
+			IntervalTree<Map<String, Object>> tree = company == null ? all : byCompany.get(company);
+			return tree == null ? Collections.emptyList() : tree.overlapping(from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads again a planification after it was created, updated or deleted.
+	 *
+	 * @param id Identifier of the planification.
+	 */
+	public void reindex(int id) {
+		lock.writeLock().lock();
+		try {
+			// not built yet: the first query will read the planifications as written
+			if (!built) {
+				return;
+			}
+			remove(id);
+			Map<String, Object> row = resourceQueryService.findOne(ResourceTables.PLANIFICATIONS, id, null);
+			if (row != null) {
+				add(row);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				resourceQueryService.list(ResourceTables.PLANIFICATIONS, null).forEach(this::add);
+				built = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void add(Map<String, Object> row) {
+		Map<String, Object> planification = Collections.unmodifiableMap(row);
+		Entry entry = new Entry(((Number) row.get("companyId")).intValue(), SqlValues.localDate(row.get("startDate")));
+		int id = ((Number) row.get("id")).intValue();
+		LocalDate end = SqlValues.localDate(row.get("endDate"));
+		all.add(id, entry.start(), end, planification);
+		byCompany.computeIfAbsent(entry.company(), key -> new IntervalTree<>()).add(id, entry.start(), end,
+				planification);
+		entries.put(id, entry);
+	}
+
+	private void remove(int id) {
+		Entry entry = entries.remove(id);
+		if (entry == null) {
+			return;
+		}
+		all.remove(id, entry.start());
+		IntervalTree<Map<String, Object>> tree = byCompany.get(entry.company());
+		tree.remove(id, entry.start());
+		if (tree.size() == 0) {
+			byCompany.remove(entry.company());
+		}
+	}
+
+	/**
+	 * Where a planification is held in the trees.
+	 */
+	private record Entry(int company, LocalDate start) {
+	}
+}
@@ -0,0 +1,26 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a controller, or one of its methods, to the users holding at least
+ * one of the given authorities. The check is a bit test against the
+ * {@link CompiledAuthorities} of the {@link AkdemiaAuthenticationToken}, e.g.
+ * {@code @RequireAuthority("admin")}.
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface RequireAuthority {
+
+	/**
+	 * @return The accepted authorities.
+	 */
+	String[] value();
+}
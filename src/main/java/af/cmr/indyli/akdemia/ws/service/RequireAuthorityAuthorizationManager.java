@@ -0,0 +1,65 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * AuthorizationManager enforcing {@link RequireAuthority}. The authorities
+ * required by a method are compiled once into a bitset, so that each check is
+ * a bit test against the {@link CompiledAuthorities} of the authenticated user
+ * instead of a comparison of authority strings.
+ */
+public class RequireAuthorityAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+	private final AuthorityRegistry authorityRegistry;
+	private final Map<Method, Optional<CompiledAuthorities>> requiredByMethod = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor to initialize the RequireAuthorityAuthorizationManager.
+	 *
+	 * @param authorityRegistry AuthorityRegistry giving the authorities their bits.
+	 */
+	public RequireAuthorityAuthorizationManager(AuthorityRegistry authorityRegistry) {
+		this.authorityRegistry = authorityRegistry;
+	}
+
+	@Override
+	public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+		Optional<CompiledAuthorities> required = requiredByMethod.computeIfAbsent(invocation.getMethod(),
+				method -> resolve(method, invocation.getThis()));
+		if (required.isEmpty()) {
+			return null;
+		}
+		Authentication current = authentication.get();
+		if (current == null || !current.isAuthenticated()) {
+			return new AuthorizationDecision(false);
+		}
+		CompiledAuthorities granted = current instanceof AkdemiaAuthenticationToken token
+				? token.getCompiledAuthorities()
+				: authorityRegistry.compileNames(
+						current.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+		return new AuthorizationDecision(granted.intersects(required.get()));
+	}
+
+	private Optional<CompiledAuthorities> resolve(Method method, Object target) {
+		RequireAuthority annotation = AnnotatedElementUtils.findMergedAnnotation(method, RequireAuthority.class);
+		if (annotation == null && target != null) {
+			annotation = AnnotatedElementUtils.findMergedAnnotation(AopUtils.getTargetClass(target),
+					RequireAuthority.class);
+		}
+		return Optional.ofNullable(annotation)
+				.map(found -> authorityRegistry.compileNames(Arrays.asList(found.value())));
+	}
+}
@@ -0,0 +1,460 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import af.cmr.indyli.akdemia.ws.dto.PageDTO;
+import af.cmr.indyli.akdemia.ws.utils.ExportFormat;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.RowWriter;
+
+/**
+ * Service class reading the collection resources page by page, straight from
+ * their tables.
+ * <p>
+ * Pages use keyset pagination: they are ordered by ID, or by a date such as
+ * CREATION_DATE then ID, and the cursor of the next page holds the sort key of
+ * the last row returned. The next page starts with a range condition on that
+ * key, so it is an index range scan whose cost does not depend on how far the
+ * client went in the collection, unlike an OFFSET.
+ * <p>
+ * Whole collections can also be streamed as NDJSON, or exported as CSV or
+ * XLSX files: rows are written one by one as the driver reads them, so the
+ * memory used does not depend on the size of the table.
+ * <p>
+ * Every read accepts a list of fields: only their columns are selected, so
+ * the unused columns are neither read from the database nor serialized.
+ */
+@Component
+public class ResourceQueryService {
+
+	/**
+	 * Largest page a client may ask for.
+	 */
+	public static final int MAX_LIMIT = 500;
+
+	private static final String ID = "id";
+	private static final int FLUSH_EVERY_ROWS = 500;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final JdbcTemplate streamingJdbcTemplate;
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * Constructor to initialize the ResourceQueryService.
+	 *
+	 * @param jdbcTemplate JdbcTemplate used to read the pages.
+	 * @param objectMapper ObjectMapper writing the streamed rows.
+	 */
+	public ResourceQueryService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.objectMapper = objectMapper;
+		// Integer.MIN_VALUE makes MySQL Connector/J stream the rows instead of buffering the whole result
+		this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+		this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Reads a page of a collection resource.
+	 *
+	 * @param table  Description of the resource.
+	 * @param limit  Maximum number of items of the page.
+	 * @param after  Cursor returned with the previous page, or null for the first
+	 *               page.
+	 * @param sort   Sort key, {@code id} (the default) or one of the sort keys of
+	 *               the resource such as {@code creationDate}, prefixed with
+	 *               {@code -} for a descending order.
+	 * @param fields Comma separated fields to return, or null for all of them.
+	 * @return The page, with the cursor of the next one.
+	 * @throws InvalidQueryException If a parameter is invalid.
+	 */
+	public PageDTO<Map<String, Object>> page(ResourceTable table, int limit, String after, String sort,
+			String fields) {
+		return search(table, Map.of(), null, null, limit, after, sort, fields);
+	}
+
+	/**
+	 * Reads a page of the items of a collection resource matching some filters,
+	 * all of them being checked by the same query. The filters and the sort key
+	 * should lead an index ending with the ID, for the page to be read from an
+	 * index range.
+	 *
+	 * @param table   Description of the resource.
+	 * @param filters Values some fields must be equal to, by field name; null
+	 *                values are ignored.
+	 * @param from    First day of the period of the items, or null.
+	 * @param to      Last day of the period of the items, or null.
+	 * @param limit   Maximum number of items of the page.
+	 * @param after   Cursor returned with the previous page, or null for the
+	 *                first page.
+	 * @param sort    Sort key, as for {@link #page(ResourceTable, int, String, String, String)}.
+	 * @param fields  Comma separated fields to return, or null for all of them.
+	 * @return The page, with the cursor of the next one.
+	 * @throws InvalidQueryException If a parameter is invalid.
+	 */
+	public PageDTO<Map<String, Object>> search(ResourceTable table, Map<String, ?> filters, LocalDate from,
+			LocalDate to, int limit, String after, String sort, String fields) {
+		if (limit < 1 || limit > MAX_LIMIT) {
+			throw new InvalidQueryException("limit must be between 1 and " + MAX_LIMIT);
+		}
+		Ordering ordering = Ordering.parse(table, sort);
+		List<String> conditions = new ArrayList<>();
+		List<Object> args = new ArrayList<>();
+		period(table, from, to, conditions, args);
+		filters.forEach((name, value) -> {
+			String column = table.getFields().get(name);
+			if (column == null) {
+				throw new InvalidQueryException(table.getName() + " cannot be filtered on " + name);
+			}
+			if (value != null) {
+				conditions.add(column + " = ?");
+				args.add(value);
+			}
+		});
+		if (after != null && !after.isEmpty()) {
+			conditions.add(ordering.after(after, args));
+		}
+		StringBuilder sql = new StringBuilder("SELECT ").append(select(table, fields, ordering.name()))
+				.append(" FROM ").append(table.getFrom());
+		if (!conditions.isEmpty()) {
+			sql.append(" WHERE ").append(String.join(" AND ", conditions));
+		}
+		sql.append(" ORDER BY ").append(ordering.orderBy()).append(" LIMIT ?");
+		args.add(limit + 1);
+
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql.toString(), args.toArray());
+		String nextCursor = null;
+		if (rows.size() > limit) {
+			rows = new ArrayList<>(rows.subList(0, limit));
+			nextCursor = ordering.cursorOf(rows.get(limit - 1));
+		}
+		return new PageDTO<>(rows, nextCursor, limit);
+	}
+
+	/**
+	 * Reads a whole collection resource, ordered by ID.
+	 *
+	 * @param table  Description of the resource.
+	 * @param fields Comma separated fields to return, or null for all of them.
+	 * @return The items of the resource.
+	 * @throws InvalidQueryException If a field is unknown.
+	 */
+	public List<Map<String, Object>> list(ResourceTable table, String fields) {
+		return jdbcTemplate
+				.queryForList("SELECT " + select(table, fields) + " FROM " + table.getFrom() + " ORDER BY t.ID");
+	}
+
+	/**
+	 * Reads the items of a collection resource belonging to a company, ordered
+	 * by ID.
+	 *
+	 * @param table               Description of the resource.
+	 * @param company             Identifier of the company.
+	 * @param fields              Comma separated fields to return, or null for
+	 *                            all of them.
+	 * @param queryTimeoutSeconds Time after which the database stops the query,
+	 *                            or 0 for no limit.
+	 * @return The items of the resource.
+	 * @throws InvalidQueryException If the resource cannot be filtered on a
+	 *                               company, or if a field is unknown.
+	 */
+	public List<Map<String, Object>> listByCompany(ResourceTable table, int company, String fields,
+			int queryTimeoutSeconds) {
+		if (table.getCompanyCondition() == null) {
+			throw new InvalidQueryException(table.getName() + " cannot be filtered on a company");
+		}
+		String sql = "SELECT " + select(table, fields) + " FROM " + table.getFrom() + " WHERE "
+				+ table.getCompanyCondition() + " ORDER BY t.ID";
+		return jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			statement.setInt(1, company);
+			statement.setQueryTimeout(queryTimeoutSeconds);
+			return statement;
+		}, new ColumnMapRowMapper());
+	}
+
+	/**
+	 * Reads one item of a collection resource.
+	 *
+	 * @param table  Description of the resource.
+	 * @param id     Identifier of the item.
+	 * @param fields Comma separated fields to return, or null for all of them.
+	 * @return The item, or null if it does not exist.
+	 * @throws InvalidQueryException If a field is unknown.
+	 */
+	public Map<String, Object> findOne(ResourceTable table, int id, String fields) {
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+				"SELECT " + select(table, fields) + " FROM " + table.getFrom() + " WHERE t.ID = ?", id);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	/**
+	 * Streams a whole collection resource as NDJSON, one JSON object per line,
+	 * ordered by ID.
+	 *
+	 * @param table  Description of the resource.
+	 * @param fields Comma separated fields to return, or null for all of them.
+	 * @return The body writing the rows as they are read.
+	 * @throws InvalidQueryException If a field is unknown.
+	 */
+	public StreamingResponseBody stream(ResourceTable table, String fields) {
+		String sql = "SELECT " + select(table, fields) + " FROM " + table.getFrom() + " ORDER BY t.ID";
+		ColumnMapRowMapper rowMapper = new ColumnMapRowMapper();
+		return out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.setRootValueSeparator(null);
+				streamingJdbcTemplate.query(sql, rs -> {
+					try {
+						generator.writeObject(rowMapper.mapRow(rs, rs.getRow()));
+						generator.writeRaw('\n');
+						if (rs.getRow() % FLUSH_EVERY_ROWS == 0) {
+							generator.flush();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+	}
+
+	/**
+	 * Exports a collection resource, ordered by ID, optionally restricted to a
+	 * period and to a company. Rows are written as the driver reads them, like
+	 * {@link #stream(ResourceTable, String)}, after a header row naming the
+	 * fields.
+	 *
+	 * @param table   Description of the resource.
+	 * @param format  The format of the export.
+	 * @param from    First day of the period, or null.
+	 * @param to      Last day of the period, or null.
+	 * @param company Identifier of the company, or null.
+	 * @param fields  Comma separated fields to export, or null for all of them.
+	 * @return The body writing the export as it is read.
+	 * @throws InvalidQueryException If a filter or a field is invalid.
+	 */
+	public StreamingResponseBody export(ResourceTable table, ExportFormat format, LocalDate from, LocalDate to,
+			Integer company, String fields) {
+		List<String> conditions = new ArrayList<>();
+		List<Object> args = new ArrayList<>();
+		period(table, from, to, conditions, args);
+		if (company != null) {
+			if (table.getCompanyCondition() == null) {
+				throw new InvalidQueryException(table.getName() + " cannot be filtered on a company");
+			}
+			conditions.add(table.getCompanyCondition());
+			args.add(company);
+		}
+		List<String> header = List.copyOf(fieldNames(table, fields));
+		String sql = "SELECT " + select(table, fields) + " FROM " + table.getFrom()
+				+ (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) + " ORDER BY t.ID";
+		return out -> {
+			RowWriter writer = format.open(out, table.getName());
+			writer.write(header);
+			try {
+				streamingJdbcTemplate.query(sql, rs -> {
+					try {
+						List<Object> values = new ArrayList<>(header.size());
+						for (int i = 1; i <= header.size(); i++) {
+							values.add(rs.getObject(i));
+						}
+						writer.write(values);
+						if (rs.getRow() % FLUSH_EVERY_ROWS == 0) {
+							writer.flush();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, args.toArray());
+				writer.finish();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+	}
+
+	private static void period(ResourceTable table, LocalDate from, LocalDate to, List<String> conditions,
+			List<Object> args) {
+		if (from == null && to == null) {
+			return;
+		}
+		if (table.getPeriod() == null) {
+			throw new InvalidQueryException(table.getName() + " cannot be filtered on a period");
+		}
+		if (from != null && to != null && from.isAfter(to)) {
+			throw new InvalidQueryException("from must not be after to");
+		}
+		if (from != null) {
+			conditions.add(table.getPeriod() + " >= ?");
+			args.add(from.atStartOfDay());
+		}
+		if (to != null) {
+			conditions.add(table.getPeriod() + " < ?");
+			args.add(to.plusDays(1).atStartOfDay());
+		}
+	}
+
+	/**
+	 * Builds the select list of the requested fields, so that only their columns
+	 * are read. The identifier and the given sort key are always selected.
+	 */
+	private static String select(ResourceTable table, String fields, String... keys) {
+		Map<String, String> all = table.getFields();
+		return fieldNames(table, fields, keys).stream().map(name -> all.get(name) + " AS " + name)
+				.collect(Collectors.joining(", "));
+	}
+
+	private static Set<String> fieldNames(ResourceTable table, String fields, String... keys) {
+		Map<String, String> all = table.getFields();
+		Set<String> names = new LinkedHashSet<>();
+		if (fields == null || fields.isBlank()) {
+			names.addAll(all.keySet());
+		} else {
+			names.add(ID);
+			names.addAll(Arrays.asList(keys));
+			for (String field : fields.split(",")) {
+				String name = field.trim();
+				if (name.isEmpty()) {
+					continue;
+				}
+				if (!all.containsKey(name)) {
+					throw new InvalidQueryException("Unknown field " + name + ", expected some of " + all.keySet());
+				}
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Order of a page: an optional date column, one of the sort keys of the
+	 * resource, then the ID as tie-breaker. The ID is read from the table of the
+	 * date column, joined on the same ID, so that a page of a joined resource
+	 * can still be read from the index of that table.
+	 */
+	private record Ordering(String name, String column, boolean descending) {
+
+		static Ordering parse(ResourceTable table, String sort) {
+			String key = sort == null || sort.isEmpty() ? ID : sort;
+			boolean descending = key.startsWith("-");
+			if (descending) {
+				key = key.substring(1);
+			}
+			if (ID.equals(key)) {
+				return new Ordering(ID, null, descending);
+			}
+			String column = table.getSortKeys().get(key);
+			if (column != null) {
+				return new Ordering(key, column, descending);
+			}
+			StringBuilder keys = new StringBuilder("id, -id");
+			table.getSortKeys().keySet().forEach(name -> keys.append(", ").append(name).append(", -").append(name));
+			throw new InvalidQueryException("sort must be one of " + keys);
+		}
+
+		String orderBy() {
+			String direction = descending ? " DESC" : " ASC";
+			return column == null ? "t.ID" + direction : column + direction + ", " + id() + direction;
+		}
+
+		private String id() {
+			return column.substring(0, column.indexOf('.')) + ".ID";
+		}
+
+		/**
+		 * Builds the condition selecting the rows after the cursor. MySQL sorts
+		 * nulls first, so they come before any date in ascending order and after
+		 * them in descending order.
+		 */
+		String after(String cursor, List<Object> args) {
+			String[] parts = decode(cursor);
+			String comparison = descending ? " < ?" : " > ?";
+			try {
+				int id = Integer.parseInt(parts[2]);
+				if (column == null) {
+					args.add(id);
+					return "t.ID" + comparison;
+				}
+				if (parts[1].isEmpty()) {
+					args.add(id);
+					return descending ? "(" + column + " IS NULL AND " + id() + " < ?)"
+							: "((" + column + " IS NULL AND " + id() + " > ?) OR " + column + " IS NOT NULL)";
+				}
+				Object date = parts[1].contains("T") ? LocalDateTime.parse(parts[1]) : LocalDate.parse(parts[1]);
+				args.add(date);
+				args.add(date);
+				args.add(id);
+				return "(" + column + comparison + " OR (" + column + " = ? AND " + id() + comparison + ")"
+						+ (descending ? " OR " + column + " IS NULL)" : ")");
+			} catch (NumberFormatException | DateTimeParseException e) {
+				throw new InvalidQueryException("Invalid cursor");
+			}
+		}
+
+		String cursorOf(Map<String, Object> row) {
+			Object date = column == null ? null : row.get(name);
+			if (date instanceof Timestamp timestamp) {
+				date = timestamp.toLocalDateTime();
+			} else if (date instanceof java.sql.Date sqlDate) {
+				date = sqlDate.toLocalDate();
+			}
+			String value = name + "|" + (date == null ? "" : date) + "|" + row.get(ID);
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private String[] decode(String cursor) {
+			String[] parts;
+			try {
+				parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+			} catch (IllegalArgumentException e) {
+				throw new InvalidQueryException("Invalid cursor");
+			}
+			if (parts.length != 3 || !name.equals(parts[0])) {
+				throw new InvalidQueryException("The cursor does not match the sort order");
+			}
+			return parts;
+		}
+	}
+
+	/**
+	 * Thrown when the parameters of a collection query are invalid.
+	 */
+	public static class InvalidQueryException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Constructor to initialize the InvalidQueryException.
+		 *
+		 * @param message The reason why the query is invalid.
+		 */
+		public InvalidQueryException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+
+/**
+ * Counts, per table, the writes made through the web services. The counters
+ * are part of the ETags, so that a write is seen immediately even when it did
+ * not move the UPDATE_DATE of the rows, e.g. when two updates happen within the
+ * same second.
+ * <p>
+ * The counters are kept in the {@code akdemia_resource_version} table, so that
+ * every node of the application sees the writes of the others.
+ */
+@Component
+public class ResourceVersions {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Constructor to initialize the ResourceVersions.
+	 *
+	 * @param jdbcTemplate JdbcTemplate reading and writing the counters.
+	 */
+	public ResourceVersions(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Records a write on a resource, which changes the version of every resource
+	 * reading one of its tables.
+	 *
+	 * @param table Description of the written resource.
+	 */
+	public void increment(ResourceTable table) {
+		jdbcTemplate.batchUpdate(
+				"INSERT INTO akdemia_resource_version (TABLE_NAME, VERSION) VALUES (?, 1)"
+						+ " ON DUPLICATE KEY UPDATE VERSION = VERSION + 1",
+				table.getTables().stream().map(name -> new Object[] { name }).toList());
+	}
+
+	/**
+	 * @param table Description of a resource.
+	 * @return The version of the resource, which grows with every write on one of
+	 *         its tables.
+	 */
+	public long versionOf(ResourceTable table) {
+		List<String> names = List.copyOf(table.getTables());
+		Long version = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(VERSION), 0) FROM akdemia_resource_version"
+				+ " WHERE TABLE_NAME IN (" + SqlValues.placeholders(names.size()) + ")", Long.class, names.toArray());
+		return version == null ? 0 : version;
+	}
+}
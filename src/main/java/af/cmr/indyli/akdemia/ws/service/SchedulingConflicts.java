@@ -0,0 +1,331 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.dto.ConflictDTO;
+import af.cmr.indyli.akdemia.ws.utils.IntervalTree;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+
+/**
+ * In-memory schedule of the trainers and of the employees, telling which
+ * sessions book the same person on overlapping days.
+ * <p>
+ * A session runs from its {@code DATE} for {@code DURATION} days, one day at
+ * least; a session without a date books nobody. The sessions of every trainer,
+ * and those every employee subscribed to, are held in an interval tree per
+ * person, so that the sessions overlapping one of them are found in
+ * {@code O(log n)} plus one step per conflict. The schedule is built from the
+ * database on its first use. Controllers writing sessions must call
+ * {@link #reindexSession(int)} after the write, and those writing employee
+ * subscriptions {@link #reindexSubscriptions(Collection)}.
+ */
+@Component
+public class SchedulingConflicts {
+
+	/**
+	 * Response header listing, on a session or subscription write, the
+	 * sessions the written one conflicts with.
+	 */
+	public static final String HEADER = "Akdemia-Conflicts";
+
+	private static final String SESSIONS = "SELECT ID, ID_AKDEMIA_TRAINER, DATE, DURATION FROM akdemia_session";
+	private static final String SUBSCRIPTIONS = "SELECT ID, ID_AKDEMIA_EMPLOYEE, ID_AKDEMIA_INTRA_SESSION"
+			+ " FROM akdemia_employee_souscription";
+
+	private static final Comparator<ConflictDTO> ORDER = Comparator.comparing(ConflictDTO::getKind)
+			.thenComparingInt(ConflictDTO::getPersonId).thenComparingInt(ConflictDTO::getSessionId)
+			.thenComparingInt(ConflictDTO::getConflictingSessionId);
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Booking> sessions = new HashMap<>();
+	private final Map<Integer, Subscription> subscriptions = new HashMap<>();
+	private final Map<Integer, Set<Integer>> subscriptionsBySession = new HashMap<>();
+	private final Map<Integer, IntervalTree<Integer>> byTrainer = new HashMap<>();
+	private final Map<Integer, IntervalTree<Integer>> byEmployee = new HashMap<>();
+	private volatile boolean built;
+
+	/**
+	 * Constructor to initialize the SchedulingConflicts.
+	 *
+	 * @param jdbcTemplate JdbcTemplate reading the sessions and the
+	 *                     subscriptions.
+	 */
+	public SchedulingConflicts(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Lists the sessions overlapping a session for its trainer or one of its
+	 * subscribed employees.
+	 *
+	 * @param sessionId Identifier of the session.
+	 * @return The conflicts of the session, empty if it does not exist.
+	 */
+	public List<ConflictDTO> ofSession(int sessionId) {
+		build();
+		lock.readLock().lock();
+		try {
+			List<ConflictDTO> conflicts = new ArrayList<>();
+			Booking booking = sessions.get(sessionId);
+			if (booking == null || booking.start() == null) {
+				return conflicts;
+			}
+			if (booking.trainer() != null) {
+				for (Integer other : byTrainer.get(booking.trainer()).overlapping(booking.start(), booking.end())) {
+					if (other != sessionId) {
+						conflicts.add(new ConflictDTO(ConflictDTO.TRAINER, booking.trainer(), sessionId, other));
+					}
+				}
+			}
+			for (Integer subscriptionId : subscriptionsBySession.getOrDefault(sessionId, Collections.emptySet())) {
+				employeeConflicts(subscriptionId, booking, conflicts);
+			}
+			return conflicts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lists the sessions overlapping the session of an employee subscription
+	 * for the same employee.
+	 *
+	 * @param subscriptionId Identifier of the employee subscription.
+	 * @return The conflicts of the subscription, empty if it does not exist.
+	 */
+	public List<ConflictDTO> ofSubscription(int subscriptionId) {
+		build();
+		lock.readLock().lock();
+		try {
+			List<ConflictDTO> conflicts = new ArrayList<>();
+			Subscription subscription = subscriptions.get(subscriptionId);
+			if (subscription != null && subscription.start() != null) {
+				employeeConflicts(subscriptionId, sessions.get(subscription.session()), conflicts);
+			}
+			return conflicts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lists all the double bookings, each pair of sessions once per person.
+	 *
+	 * @return The conflicts, ordered by kind, person and sessions.
+	 */
+	public List<ConflictDTO> report() {
+		build();
+		lock.readLock().lock();
+		try {
+			List<ConflictDTO> conflicts = new ArrayList<>();
+			sessions.forEach((sessionId, booking) -> {
+				if (booking.trainer() == null || booking.start() == null) {
+					return;
+				}
+				for (Integer other : byTrainer.get(booking.trainer()).overlapping(booking.start(), booking.end())) {
+					if (other > sessionId) {
+						conflicts.add(new ConflictDTO(ConflictDTO.TRAINER, booking.trainer(), sessionId, other));
+					}
+				}
+			});
+			subscriptions.forEach((subscriptionId, subscription) -> {
+				if (subscription.start() == null) {
+					return;
+				}
+				Booking booking = sessions.get(subscription.session());
+				for (Integer other : byEmployee.get(subscription.employee()).overlapping(booking.start(),
+						booking.end())) {
+					if (other > subscriptionId) {
+						conflicts.add(new ConflictDTO(ConflictDTO.EMPLOYEE, subscription.employee(),
+								subscription.session(), subscriptions.get(other).session()));
+					}
+				}
+			});
+			conflicts.sort(ORDER);
+			return conflicts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lists the sessions some conflicts are with, as the value of
+	 * {@link #HEADER}.
+	 *
+	 * @param conflicts Conflicts of a session or a subscription.
+	 * @return The distinct identifiers of the conflicting sessions.
+	 */
+	public static String[] conflictingSessions(List<ConflictDTO> conflicts) {
+		return conflicts.stream().map(conflict -> String.valueOf(conflict.getConflictingSessionId())).distinct()
+				.toArray(String[]::new);
+	}
+
+	/**
+	 * Reads again a session, and its employee subscriptions, after it was
+	 * created, updated or deleted.
+	 *
+	 * @param sessionId Identifier of the session.
+	 */
+	public void reindexSession(int sessionId) {
+		lock.writeLock().lock();
+		try {
+			// not built yet: the first use will read the sessions as written
+			if (!built) {
+				return;
+			}
+			removeSession(sessionId);
+			jdbcTemplate.query(SESSIONS + " WHERE ID = ?", rs -> {
+				addSession(rs.getInt(1), (Integer) rs.getObject(2), SqlValues.localDate(rs.getObject(3)), rs.getInt(4));
+			}, sessionId);
+			Set<Integer> linked = new LinkedHashSet<>(
+					subscriptionsBySession.getOrDefault(sessionId, Collections.emptySet()));
+			linked.addAll(jdbcTemplate.queryForList(
+					"SELECT ID FROM akdemia_employee_souscription WHERE ID_AKDEMIA_INTRA_SESSION = ?", Integer.class,
+					sessionId));
+			reloadSubscriptions(linked);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads again employee subscriptions after they were created, updated or
+	 * deleted.
+	 *
+	 * @param subscriptionIds Identifiers of the employee subscriptions, null ones
+	 *                        being ignored.
+	 */
+	public void reindexSubscriptions(Collection<Integer> subscriptionIds) {
+		lock.writeLock().lock();
+		try {
+			if (built) {
+				reloadSubscriptions(subscriptionIds.stream().filter(Objects::nonNull)
+						.collect(Collectors.toCollection(LinkedHashSet::new)));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				jdbcTemplate.query(SESSIONS, rs -> {
+					addSession(rs.getInt(1), (Integer) rs.getObject(2), SqlValues.localDate(rs.getObject(3)),
+							rs.getInt(4));
+				});
+				jdbcTemplate.query(SUBSCRIPTIONS, rs -> {
+					addSubscription(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+				});
+				built = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void employeeConflicts(int subscriptionId, Booking booking, List<ConflictDTO> conflicts) {
+		Subscription subscription = subscriptions.get(subscriptionId);
+		for (Integer other : byEmployee.get(subscription.employee()).overlapping(booking.start(), booking.end())) {
+			if (other != subscriptionId) {
+				conflicts.add(new ConflictDTO(ConflictDTO.EMPLOYEE, subscription.employee(), subscription.session(),
+						subscriptions.get(other).session()));
+			}
+		}
+	}
+
+	private void reloadSubscriptions(Collection<Integer> subscriptionIds) {
+		if (subscriptionIds.isEmpty()) {
+			return;
+		}
+		subscriptionIds.forEach(this::removeSubscription);
+		jdbcTemplate.query(SUBSCRIPTIONS + " WHERE ID IN ("
+				+ SqlValues.placeholders(subscriptionIds.size()) + ")", rs -> {
+					addSubscription(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+				}, subscriptionIds.toArray());
+	}
+
+	private void addSession(int sessionId, Integer trainer, LocalDate start, int duration) {
+		LocalDate end = start == null ? null : start.plusDays(Math.max(duration, 1) - 1L);
+		sessions.put(sessionId, new Booking(trainer, start, end));
+		if (trainer != null && start != null) {
+			byTrainer.computeIfAbsent(trainer, key -> new IntervalTree<>()).add(sessionId, start, end, sessionId);
+		}
+	}
+
+	private void removeSession(int sessionId) {
+		Booking booking = sessions.remove(sessionId);
+		if (booking != null && booking.trainer() != null && booking.start() != null) {
+			remove(byTrainer, booking.trainer(), sessionId, booking.start());
+		}
+	}
+
+	private void addSubscription(int subscriptionId, int employee, int sessionId) {
+		Booking booking = sessions.get(sessionId);
+		LocalDate start = booking == null ? null : booking.start();
+		subscriptions.put(subscriptionId, new Subscription(employee, sessionId, start));
+		subscriptionsBySession.computeIfAbsent(sessionId, key -> new LinkedHashSet<>()).add(subscriptionId);
+		if (start != null) {
+			byEmployee.computeIfAbsent(employee, key -> new IntervalTree<>()).add(subscriptionId, start,
+					booking.end(), subscriptionId);
+		}
+	}
+
+	private void removeSubscription(int subscriptionId) {
+		Subscription subscription = subscriptions.remove(subscriptionId);
+		if (subscription == null) {
+			return;
+		}
+		Set<Integer> linked = subscriptionsBySession.get(subscription.session());
+		linked.remove(subscriptionId);
+		if (linked.isEmpty()) {
+			subscriptionsBySession.remove(subscription.session());
+		}
+		if (subscription.start() != null) {
+			remove(byEmployee, subscription.employee(), subscriptionId, subscription.start());
+		}
+	}
+
+	private static void remove(Map<Integer, IntervalTree<Integer>> trees, int person, int id, LocalDate start) {
+		IntervalTree<Integer> tree = trees.get(person);
+		tree.remove(id, start);
+		if (tree.size() == 0) {
+			trees.remove(person);
+		}
+	}
+
+	/**
+	 * Days a session books its trainer and its employees for, none when its
+	 * start is null.
+	 */
+	private record Booking(Integer trainer, LocalDate start, LocalDate end) {
+	}
+
+	/**
+	 * An employee subscribed to a session, and the start the subscription is
+	 * held under in the tree of the employee.
+	 */
+	private record Subscription(int employee, int session, LocalDate start) {
+	}
+}
@@ -0,0 +1,103 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory list of revoked JWTs, checked in constant time and without any
+ * database access by {@link JwtService#verifyToken(String)}.
+ * <p>
+ * Single tokens are revoked by their id ({@code jti}) and all the tokens of a
+ * user by recording the instant before which its tokens are no longer
+ * accepted. Revoked ids are grouped in one minute buckets by expiration so
+ * that they are dropped as soon as the token would have expired anyway; the
+ * list therefore never holds more than the tokens revoked during the lifetime
+ * of a refresh token. The list is local to the node.
+ */
+@Component
+public class TokenRevocationStore {
+
+	private static final long BUCKET_MILLIS = 60_000;
+
+	private final Map<String, Long> revokedIds = new ConcurrentHashMap<>();
+	private final NavigableMap<Long, Set<String>> idsByBucket = new ConcurrentSkipListMap<>();
+	private final Map<String, RevokedSubject> revokedSubjects = new ConcurrentHashMap<>();
+	private volatile long nextPurge;
+
+	/**
+	 * Revokes a single token. Of concurrent calls for the same token, only one
+	 * revokes it, so that a token can be exchanged once.
+	 *
+	 * @param tokenId   Id of the token.
+	 * @param expiresAt Expiration of the token, in milliseconds since the epoch.
+	 * @return True if this call revoked the token, false if it was already
+	 *         revoked, has expired or has no id.
+	 */
+	public boolean revoke(String tokenId, long expiresAt) {
+		if (tokenId == null || expiresAt <= System.currentTimeMillis()) {
+			return false;
+		}
+		if (revokedIds.putIfAbsent(tokenId, expiresAt) != null) {
+			return false;
+		}
+		idsByBucket.computeIfAbsent(expiresAt / BUCKET_MILLIS, bucket -> ConcurrentHashMap.newKeySet()).add(tokenId);
+		purgeIfDue();
+		return true;
+	}
+
+	/**
+	 * Revokes every token issued to a user before the current second. The
+	 * tokens issued during that second, which cannot be told apart from the
+	 * ones issued after the call, are kept.
+	 *
+	 * @param subject                Subject of the tokens, i.e. the user's email.
+	 * @param maxTokenLifetimeMillis Longest lifetime of a token, after which the
+	 *                               revocation can be forgotten.
+	 */
+	public void revokeAll(String subject, long maxTokenLifetimeMillis) {
+		long now = System.currentTimeMillis();
+		// issue dates have a one second precision: truncated, so that the tokens issued right after, such as
+		// the ones of a new login, are kept
+		revokedSubjects.put(subject, new RevokedSubject(now / 1000 * 1000, now + maxTokenLifetimeMillis));
+		purgeIfDue();
+	}
+
+	/**
+	 * Tells whether a verified token has been revoked.
+	 *
+	 * @param token The verified token.
+	 * @return True if the token must be rejected.
+	 */
+	public boolean isRevoked(VerifiedToken token) {
+		purgeIfDue();
+		String tokenId = token.getTokenId();
+		if (tokenId != null && revokedIds.containsKey(tokenId)) {
+			return true;
+		}
+		RevokedSubject subject = revokedSubjects.get(token.getSubject());
+		return subject != null && token.getIssuedAt() != null
+				&& token.getIssuedAt().getTime() < subject.revokedBefore;
+	}
+
+	private void purgeIfDue() {
+		long now = System.currentTimeMillis();
+		if (now < nextPurge) {
+			return;
+		}
+		nextPurge = now + BUCKET_MILLIS;
+		NavigableMap<Long, Set<String>> expired = idsByBucket.headMap(now / BUCKET_MILLIS, false);
+		for (Set<String> ids : expired.values()) {
+			ids.forEach(revokedIds::remove);
+		}
+		expired.clear();
+		revokedSubjects.values().removeIf(subject -> subject.forgetAt <= now);
+	}
+
+	private record RevokedSubject(long revokedBefore, long forgetAt) {
+	}
+}
@@ -0,0 +1,13 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Decoded logo of a training, or one of its thumbnails.
+ *
+ * @param hash        MD5 of the stored logo, from which the ETag is derived.
+ * @param bytes       The image.
+ * @param contentType The content type of the image.
+ */
+public record TrainingLogo(String hash, byte[] bytes, MediaType contentType) {
+}
@@ -0,0 +1,288 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import af.cmr.indyli.akdemia.ws.utils.ImageTypes;
+
+/**
+ * Service class serving the logos of the trainings as binary images.
+ * <p>
+ * {@code akdemia_training.LOGO} holds a reference to the logo in the
+ * {@link BlobStore}, or, for the logos not migrated yet, the base64 encoded
+ * image. The MD5 of the column is computed by the database, so a client
+ * already holding the current logo is answered without transferring it.
+ * Thumbnails, and the decoded logos they are made from, are kept in an LRU
+ * cache bounded by its total size in bytes and keyed by the MD5 of the
+ * column, so that a new logo never hits a stale entry.
+ * <p>
+ * Logos written through the API are stored in the {@link BlobStore};
+ * {@link #migrateAll()} moves the remaining base64 logos there.
+ */
+@Component
+public class TrainingLogoService {
+
+	/**
+	 * Size requesting the original logo rather than a thumbnail.
+	 */
+	public static final int ORIGINAL_SIZE = 0;
+
+	private static final String LOGO_CONDITION = " FROM akdemia_training WHERE ID = ? AND LOGO IS NOT NULL AND LOGO <> ''";
+	private static final String NOT_MIGRATED = " AND LOGO NOT LIKE '" + BlobStore.REFERENCE_PREFIX + "%'";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final BlobStore blobStore;
+	private final Set<Integer> thumbnailSizes;
+	private final long cacheMaxBytes;
+	private final Map<String, TrainingLogo> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private long cacheBytes;
+
+	/**
+	 * Constructor to initialize the TrainingLogoService.
+	 *
+	 * @param jdbcTemplate   JdbcTemplate used to read the logos.
+	 * @param blobStore      BlobStore holding the logos.
+	 * @param thumbnailSizes Sizes, in pixels, of the thumbnails that may be requested.
+	 * @param cacheMaxBytes  Maximum total size of the cached images.
+	 */
+	public TrainingLogoService(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+			@Value("${akdemia.application.logo.thumbnail-sizes:64,128,256}") Set<Integer> thumbnailSizes,
+			@Value("${akdemia.application.logo.cache-max-bytes:33554432}") long cacheMaxBytes) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.blobStore = blobStore;
+		this.thumbnailSizes = Set.copyOf(thumbnailSizes);
+		this.cacheMaxBytes = cacheMaxBytes;
+	}
+
+	/**
+	 * @param size Requested size.
+	 * @return True if the size is {@link #ORIGINAL_SIZE} or one of the configured
+	 *         thumbnail sizes.
+	 */
+	public boolean isSupportedSize(int size) {
+		return size == ORIGINAL_SIZE || thumbnailSizes.contains(size);
+	}
+
+	/**
+	 * Reads the hash of the logo of a training, without reading the logo. The
+	 * hash changes whenever the logo changes, even when it is migrated.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @return The MD5 of the stored logo, or null if the training has no logo.
+	 */
+	public String getHash(int trainingId) {
+		List<String> hashes = jdbcTemplate.queryForList("SELECT MD5(LOGO)" + LOGO_CONDITION, String.class,
+				trainingId);
+		return hashes.isEmpty() ? null : hashes.get(0);
+	}
+
+	/**
+	 * Reads the reference to the logo of a training in the {@link BlobStore}.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @return The hash of the logo in the {@link BlobStore}, or null if the
+	 *         training has no logo or if it was not migrated yet.
+	 */
+	public String getBlob(int trainingId) {
+		List<String> logos = jdbcTemplate.queryForList("SELECT LOGO" + LOGO_CONDITION + " AND LOGO LIKE '"
+				+ BlobStore.REFERENCE_PREFIX + "%'", String.class, trainingId);
+		return logos.isEmpty() ? null : BlobStore.hashOf(logos.get(0));
+	}
+
+	/**
+	 * Gets the logo of a training, or one of its thumbnails.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @param hash       Hash of the logo, as returned by {@link #getHash(int)}.
+	 * @param size       Largest side of the thumbnail in pixels, or
+	 *                   {@link #ORIGINAL_SIZE}.
+	 * @return The logo, or null if the training has no logo anymore.
+	 */
+	public TrainingLogo getLogo(int trainingId, String hash, int size) {
+		TrainingLogo logo = cached(hash, size);
+		if (logo != null) {
+			return logo;
+		}
+		TrainingLogo original = cached(hash, ORIGINAL_SIZE);
+		if (original == null) {
+			original = load(trainingId);
+			if (original == null) {
+				return null;
+			}
+			cache(original, ORIGINAL_SIZE);
+		}
+		if (size == ORIGINAL_SIZE) {
+			return original;
+		}
+		logo = resize(original, size);
+		cache(logo, size);
+		return logo;
+	}
+
+	/**
+	 * Reads the column holding the logo of a training.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @return The reference to the logo in the {@link BlobStore}, the base64
+	 *         encoded logo if it was not migrated yet, or null if the training
+	 *         has no logo.
+	 */
+	public String getStoredLogo(int trainingId) {
+		List<String> logos = jdbcTemplate.queryForList("SELECT LOGO" + LOGO_CONDITION, String.class, trainingId);
+		return logos.isEmpty() ? null : logos.get(0);
+	}
+
+	/**
+	 * Stores a new logo for a training.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @param content    The image.
+	 * @return False if the training does not exist.
+	 * @throws IOException If the image cannot be stored.
+	 */
+	public boolean storeLogo(int trainingId, InputStream content) throws IOException {
+		String hash = blobStore.put(content);
+		return jdbcTemplate.update("UPDATE akdemia_training SET LOGO = ?, UPDATE_DATE = ? WHERE ID = ?",
+				BlobStore.toReference(hash), LocalDateTime.now(), trainingId) == 1;
+	}
+
+	/**
+	 * Moves the logo of a training into the {@link BlobStore} if it is still
+	 * stored base64 encoded in the database.
+	 *
+	 * @param trainingId Identifier of the training.
+	 * @return True if the logo was moved.
+	 * @throws IOException If the logo cannot be stored.
+	 */
+	public boolean migrate(int trainingId) throws IOException {
+		List<String> logos = jdbcTemplate.queryForList("SELECT LOGO" + LOGO_CONDITION + NOT_MIGRATED, String.class,
+				trainingId);
+		if (logos.isEmpty()) {
+			return false;
+		}
+		String encoded = logos.get(0);
+		String hash = blobStore.put(new ByteArrayInputStream(decode(encoded)));
+		// the logo is only replaced if it did not change meanwhile
+		return jdbcTemplate.update("UPDATE akdemia_training SET LOGO = ? WHERE ID = ? AND MD5(LOGO) = ?",
+				BlobStore.toReference(hash), trainingId, md5(encoded)) == 1;
+	}
+
+	/**
+	 * Moves every logo still stored base64 encoded in the database into the
+	 * {@link BlobStore}, one training at a time.
+	 *
+	 * @return The number of logos moved.
+	 * @throws IOException If a logo cannot be stored.
+	 */
+	public int migrateAll() throws IOException {
+		List<Integer> ids = jdbcTemplate.queryForList(
+				"SELECT ID FROM akdemia_training WHERE LOGO IS NOT NULL AND LOGO <> ''" + NOT_MIGRATED + " ORDER BY ID",
+				Integer.class);
+		int migrated = 0;
+		for (int id : ids) {
+			if (migrate(id)) {
+				migrated++;
+			}
+		}
+		return migrated;
+	}
+
+	private TrainingLogo load(int trainingId) {
+		String stored = getStoredLogo(trainingId);
+		if (stored == null) {
+			return null;
+		}
+		String blob = BlobStore.hashOf(stored);
+		byte[] bytes;
+		try {
+			bytes = blob == null ? decode(stored) : blobStore.read(blob);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new TrainingLogo(md5(stored), bytes, ImageTypes.contentTypeOf(bytes));
+	}
+
+	private static byte[] decode(String encoded) {
+		// tolerate logos stored as data URLs
+		if (encoded.startsWith("data:") && encoded.indexOf(',') > 0) {
+			encoded = encoded.substring(encoded.indexOf(',') + 1);
+		}
+		return Base64.getMimeDecoder().decode(encoded);
+	}
+
+	private static String md5(String stored) {
+		return DigestUtils.md5DigestAsHex(stored.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Scales an image down so that its largest side is {@code size} pixels. The
+	 * image is returned unchanged when it is already smaller, or when its format
+	 * cannot be decoded by ImageIO (WEBP for instance).
+	 */
+	private static TrainingLogo resize(TrainingLogo original, int size) {
+		try {
+			BufferedImage source = ImageIO.read(new ByteArrayInputStream(original.bytes()));
+			if (source == null || Math.max(source.getWidth(), source.getHeight()) <= size) {
+				return original;
+			}
+			double scale = (double) size / Math.max(source.getWidth(), source.getHeight());
+			int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+			int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+			boolean alpha = source.getColorModel().hasAlpha();
+			BufferedImage thumbnail = new BufferedImage(width, height,
+					alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = thumbnail.createGraphics();
+			try {
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(source, 0, 0, width, height, null);
+			} finally {
+				graphics.dispose();
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ImageIO.write(thumbnail, alpha ? "png" : "jpg", out);
+			return new TrainingLogo(original.hash(), out.toByteArray(), alpha ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private synchronized TrainingLogo cached(String hash, int size) {
+		return cache.get(hash + ':' + size);
+	}
+
+	private synchronized void cache(TrainingLogo logo, int size) {
+		if (logo.bytes().length > cacheMaxBytes) {
+			return;
+		}
+		TrainingLogo previous = cache.put(logo.hash() + ':' + size, logo);
+		cacheBytes += logo.bytes().length - (previous == null ? 0 : previous.bytes().length);
+		Iterator<TrainingLogo> eldest = cache.values().iterator();
+		while (cacheBytes > cacheMaxBytes && eldest.hasNext()) {
+			cacheBytes -= eldest.next().bytes().length;
+			eldest.remove();
+		}
+	}
+}
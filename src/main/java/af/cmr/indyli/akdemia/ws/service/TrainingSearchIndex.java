@@ -0,0 +1,301 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.ws.service.ResourceQueryService.InvalidQueryException;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTable;
+import af.cmr.indyli.akdemia.ws.utils.ResourceTables;
+import af.cmr.indyli.akdemia.ws.utils.SqlValues;
+
+/**
+ * In-memory inverted index of the training catalog behind
+ * {@code /trainings/search}.
+ * <p>
+ * A training is indexed under the words of its title and description, of its
+ * requirement, of the sub-themes holding it ({@code content}) and of the themes
+ * holding those sub-themes ({@code compose}). Words are folded to lower case
+ * without accents, so that {@code Securite} finds {@code Sécurité}, and every
+ * word of a query matches the indexed words it starts. Titles weigh more than
+ * descriptions, and whole words more than prefixes.
+ * <p>
+ * The index is built from the database on the first search, logos excluded.
+ * Controllers writing trainings, themes, sub-themes or requirements must call
+ * {@link #trainingsOf(ResourceTable, int)} before the write and
+ * {@link #reindex(ResourceTable, int, Collection)} after it, so that only the
+ * trainings linked to the written row, before or after the write, are read
+ * again.
+ */
+@Component
+public class TrainingSearchIndex {
+
+	public static final int MAX_LIMIT = 100;
+
+	private static final int MIN_TERM_LENGTH = 2;
+	private static final int TITLE_WEIGHT = 4;
+	private static final int NAME_WEIGHT = 2;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private static final String TRAININGS = "SELECT t.ID, t.TITLE, t.DESCRIPTION, t.TRAINING_PRICE,"
+			+ " t.ID_AKDEMIA_REQUIREMENT, r.NAME, r.DESCRIPTION FROM akdemia_training t"
+			+ " LEFT JOIN akdemia_requirement r ON r.ID = t.ID_AKDEMIA_REQUIREMENT";
+	private static final String SUB_THEMES = "SELECT c.ID_AKDEMIA_TRAINING, s.SUBTHEME_TITLE, s.DESCRIPTION"
+			+ " FROM content c JOIN akdemia_sub_theme s ON s.ID = c.ID";
+	private static final String THEMES = "SELECT DISTINCT c.ID_AKDEMIA_TRAINING, th.ID, th.THEME_TITLE,"
+			+ " th.DESCRIPTION FROM content c JOIN compose co ON co.ID_AKDEMIA_SUB_THEME = c.ID"
+			+ " JOIN akdemia_theme th ON th.ID = co.ID";
+
+	private static final Map<ResourceTable, String> LINKED_TRAININGS = Map.of(ResourceTables.TRAININGS,
+			"SELECT ID FROM akdemia_training WHERE ID = ?", ResourceTables.REQUIREMENTS,
+			"SELECT ID FROM akdemia_training WHERE ID_AKDEMIA_REQUIREMENT = ?", ResourceTables.SUB_THEMES,
+			"SELECT ID_AKDEMIA_TRAINING FROM content WHERE ID = ?", ResourceTables.THEMES,
+			"SELECT DISTINCT c.ID_AKDEMIA_TRAINING FROM compose co"
+					+ " JOIN content c ON c.ID = co.ID_AKDEMIA_SUB_THEME WHERE co.ID = ?");
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+	private final Map<Integer, Document> documents = new HashMap<>();
+	private volatile boolean built;
+
+	/**
+	 * Constructor to initialize the TrainingSearchIndex.
+	 *
+	 * @param jdbcTemplate JdbcTemplate reading the catalog.
+	 */
+	public TrainingSearchIndex(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Searches the trainings matching every word of a query.
+	 *
+	 * @param query The words to look for.
+	 * @param limit Maximum number of trainings returned.
+	 * @return The id, title, description, price and requirement of the matching
+	 *         trainings, the most relevant first.
+	 * @throws InvalidQueryException If the limit is out of bounds.
+	 */
+	public List<Map<String, Object>> search(String query, int limit) {
+		if (limit < 1 || limit > MAX_LIMIT) {
+			throw new InvalidQueryException("limit must be between 1 and " + MAX_LIMIT);
+		}
+		Set<String> terms = new LinkedHashSet<>(terms(query));
+		if (terms.isEmpty()) {
+			return Collections.emptyList();
+		}
+		build();
+		lock.readLock().lock();
+		try {
+			Map<Integer, Integer> scores = null;
+			for (String term : terms) {
+				Map<Integer, Integer> matches = new HashMap<>();
+				for (Map.Entry<String, Map<Integer, Integer>> posting : postings
+						.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+					int factor = posting.getKey().length() == term.length() ? 2 : 1;
+					posting.getValue().forEach((id, weight) -> matches.merge(id, weight * factor, Math::max));
+				}
+				if (scores == null) {
+					scores = matches;
+				} else {
+					scores.keySet().retainAll(matches.keySet());
+					scores.replaceAll((id, score) -> score + matches.get(id));
+				}
+				if (scores.isEmpty()) {
+					return Collections.emptyList();
+				}
+			}
+			return scores.entrySet().stream()
+					.sorted(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+							.thenComparing(Map.Entry.comparingByKey()))
+					.limit(limit).map(entry -> documents.get(entry.getKey()).summary()).toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lists the trainings linked to a row of the catalog. Call it before
+	 * writing the row and pass the result to
+	 * {@link #reindex(ResourceTable, int, Collection)} afterwards.
+	 *
+	 * @param table Description of the row: a training, theme, sub-theme or
+	 *              requirement.
+	 * @param id    Identifier of the row.
+	 * @return The identifiers of the trainings indexed under the row.
+	 */
+	public List<Integer> trainingsOf(ResourceTable table, int id) {
+		return jdbcTemplate.queryForList(LINKED_TRAININGS.get(table), Integer.class, id);
+	}
+
+	/**
+	 * Reads again the trainings linked to a row of the catalog after a write.
+	 *
+	 * @param table    Description of the written row.
+	 * @param id       Identifier of the written row.
+	 * @param previous Trainings linked to the row before the write, as returned
+	 *                 by {@link #trainingsOf(ResourceTable, int)}.
+	 */
+	public void reindex(ResourceTable table, int id, Collection<Integer> previous) {
+		lock.writeLock().lock();
+		try {
+			// not built yet: the first search will read the catalog as written
+			if (!built) {
+				return;
+			}
+			Set<Integer> ids = new LinkedHashSet<>(previous);
+			ids.addAll(trainingsOf(table, id));
+			if (ids.isEmpty()) {
+				return;
+			}
+			Map<Integer, Document> loaded = load(ids);
+			for (Integer trainingId : ids) {
+				remove(trainingId);
+				Document document = loaded.get(trainingId);
+				if (document != null) {
+					add(trainingId, document);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void build() {
+		if (built) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!built) {
+				load(null).forEach(this::add);
+				built = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void add(Integer trainingId, Document document) {
+		documents.put(trainingId, document);
+		document.terms().forEach((term, weight) -> postings.computeIfAbsent(term, key -> new HashMap<>())
+				.put(trainingId, weight));
+	}
+
+	private void remove(Integer trainingId) {
+		Document document = documents.remove(trainingId);
+		if (document == null) {
+			return;
+		}
+		for (String term : document.terms().keySet()) {
+			Map<Integer, Integer> posting = postings.get(term);
+			posting.remove(trainingId);
+			if (posting.isEmpty()) {
+				postings.remove(term);
+			}
+		}
+	}
+
+	/**
+	 * Reads trainings with everything they are indexed under.
+	 *
+	 * @param ids Identifiers of the trainings, or null for the whole catalog.
+	 */
+	private Map<Integer, Document> load(Collection<Integer> ids) {
+		Map<Integer, Document> loaded = new LinkedHashMap<>();
+		jdbcTemplate.query(TRAININGS + where("t.ID", ids), rs -> {
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("id", rs.getInt(1));
+			summary.put("title", rs.getString(2));
+			summary.put("description", rs.getString(3));
+			summary.put("trainingPrice", rs.getObject(4));
+			summary.put("requirementId", rs.getObject(5));
+			Document document = new Document(Collections.unmodifiableMap(summary), new HashMap<>());
+			document.index(rs.getString(2), TITLE_WEIGHT);
+			document.index(rs.getString(3), DESCRIPTION_WEIGHT);
+			document.index(rs.getString(6), NAME_WEIGHT);
+			document.index(rs.getString(7), DESCRIPTION_WEIGHT);
+			loaded.put(rs.getInt(1), document);
+		}, args(ids));
+		if (loaded.isEmpty()) {
+			return loaded;
+		}
+		jdbcTemplate.query(SUB_THEMES + where("c.ID_AKDEMIA_TRAINING", ids), rs -> {
+			Document document = loaded.get(rs.getInt(1));
+			if (document != null) {
+				document.index(rs.getString(2), NAME_WEIGHT);
+				document.index(rs.getString(3), DESCRIPTION_WEIGHT);
+			}
+		}, args(ids));
+		jdbcTemplate.query(THEMES + where("c.ID_AKDEMIA_TRAINING", ids), rs -> {
+			Document document = loaded.get(rs.getInt(1));
+			if (document != null) {
+				document.index(rs.getString(3), NAME_WEIGHT);
+				document.index(rs.getString(4), DESCRIPTION_WEIGHT);
+			}
+		}, args(ids));
+		return loaded;
+	}
+
+	private static String where(String column, Collection<Integer> ids) {
+		if (ids == null) {
+			return "";
+		}
+		return " WHERE " + column + " IN (" + SqlValues.placeholders(ids.size()) + ")";
+	}
+
+	private static Object[] args(Collection<Integer> ids) {
+		return ids == null ? new Object[0] : ids.toArray();
+	}
+
+	/**
+	 * Splits a text into words folded to lower case without accents.
+	 */
+	static List<String> terms(String text) {
+		if (text == null || text.isBlank()) {
+			return Collections.emptyList();
+		}
+		String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT).replace("\u0153", "oe").replace("\u00e6", "ae");
+		List<String> terms = new ArrayList<>();
+		for (String term : SEPARATORS.split(folded)) {
+			if (term.length() >= MIN_TERM_LENGTH) {
+				terms.add(term);
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * A training as returned by the searches, and the weight of every word it
+	 * is indexed under.
+	 */
+	private record Document(Map<String, Object> summary, Map<String, Integer> terms) {
+
+		void index(String text, int weight) {
+			for (String term : terms(text)) {
+				terms.merge(term, weight, Math::max);
+			}
+		}
+	}
+}
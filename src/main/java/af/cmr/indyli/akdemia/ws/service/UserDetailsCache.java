@@ -0,0 +1,242 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import af.cmr.indyli.akdemia.business.service.IUserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Size and TTL bounded cache in front of {@link IUserService#loadUserByUsername(String)}.
+ * <p>
+ * Entries are evicted in least recently used order once
+ * {@code akdemia.application.security.user-cache.max-size} is reached and expire
+ * after {@code ttl-seconds}. Controllers writing users or roles must evict the
+ * affected entries. Hits, misses, evictions, size and hit ratio are published as
+ * {@code cache.*} metrics tagged with {@code cache=userDetails}.
+ * <p>
+ * The authorities of a user are compiled into {@link CompiledAuthorities} when
+ * it is loaded and kept with the entry, so that a hit needs no compilation.
+ */
+@Component
+public class UserDetailsCache implements UserDetailsService {
+
+	private static final String CACHE_NAME = "userDetails";
+
+	private final IUserService userService;
+	private final JdbcTemplate jdbcTemplate;
+	private final AuthorityRegistry authorityRegistry;
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Map<String, Entry> entries;
+	private long generation;
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter sizeEvictions;
+	private final Counter expiredEvictions;
+	private final Counter explicitEvictions;
+
+	/**
+	 * Constructor to initialize the UserDetailsCache.
+	 *
+	 * @param userService   IUserService instance loading the users from the database.
+	 * @param jdbcTemplate      JdbcTemplate used to resolve the email of a user by its id.
+	 * @param authorityRegistry AuthorityRegistry compiling the authorities of the users.
+	 * @param meterRegistry     MeterRegistry receiving the cache metrics.
+	 * @param maxSize           Maximum number of cached users.
+	 * @param ttlSeconds        Time to live of a cached user, in seconds.
+	 */
+	public UserDetailsCache(IUserService userService, JdbcTemplate jdbcTemplate, AuthorityRegistry authorityRegistry,
+			MeterRegistry meterRegistry,
+			@Value("${akdemia.application.security.user-cache.max-size:1000}") int maxSize,
+			@Value("${akdemia.application.security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+		this.userService = userService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.authorityRegistry = authorityRegistry;
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlSeconds * 1000;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+				.register(meterRegistry);
+		this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+				.register(meterRegistry);
+		this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "size")
+				.register(meterRegistry);
+		this.expiredEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "expired")
+				.register(meterRegistry);
+		this.explicitEvictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).tag("cause", "explicit")
+				.register(meterRegistry);
+		Gauge.builder("cache.size", this, UserDetailsCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+		Gauge.builder("cache.hit.ratio", this, UserDetailsCache::hitRatio).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Loads a user from the cache, or from {@link IUserService} on a miss. A copy
+	 * is returned every time so that erasing the credentials of an authenticated
+	 * principal never alters the cached entry.
+	 *
+	 * @param username Email of the user.
+	 * @return The user details, with its compiled authorities.
+	 * @throws UsernameNotFoundException If no user has this email.
+	 */
+	@Override
+	public CachedUser loadUserByUsername(String username) throws UsernameNotFoundException {
+		long now = System.currentTimeMillis();
+		long loadGeneration;
+		synchronized (entries) {
+			loadGeneration = generation;
+			Entry entry = entries.get(username);
+			if (entry != null) {
+				if (entry.expiresAt > now) {
+					hits.increment();
+					return copy(entry.user);
+				}
+				entries.remove(username);
+				expiredEvictions.increment();
+			}
+		}
+		misses.increment();
+		UserDetails loaded = userService.loadUserByUsername(username);
+		CachedUser user = copy(loaded, authorityRegistry.compile(loaded.getAuthorities()));
+		synchronized (entries) {
+			// a write evicted users while this one was loading: do not cache what may be stale
+			if (loadGeneration == generation) {
+				entries.put(username, new Entry(user, now + ttlMillis));
+				trim();
+			}
+		}
+		return copy(user);
+	}
+
+	/**
+	 * Evicts the user with the given email.
+	 *
+	 * @param email Email of the user, ignored when null.
+	 */
+	public void evict(String email) {
+		if (email == null) {
+			return;
+		}
+		synchronized (entries) {
+			generation++;
+			if (entries.remove(email) != null) {
+				explicitEvictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Evicts the user with the given identifier. Call it before a write and keep
+	 * the returned email for {@link #evictUser(int, String)} afterwards, so that a
+	 * changed or deleted email is evicted too.
+	 *
+	 * @param id Identifier of the user.
+	 * @return The email the user had, or null if the user does not exist.
+	 */
+	public String evictUser(int id) {
+		List<String> emails = jdbcTemplate.queryForList("SELECT EMAIL FROM akdemia_user WHERE ID = ?", String.class,
+				id);
+		String email = emails.isEmpty() ? null : emails.get(0);
+		evict(email);
+		return email;
+	}
+
+	/**
+	 * Evicts the user with the given identifier after a write, as well as the
+	 * email it had before the write.
+	 *
+	 * @param id            Identifier of the user.
+	 * @param previousEmail Email returned by {@link #evictUser(int)} before the write.
+	 */
+	public void evictUser(int id, String previousEmail) {
+		evict(previousEmail);
+		evictUser(id);
+	}
+
+	/**
+	 * Evicts every cached user, e.g. after a role or privilege change.
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			generation++;
+			explicitEvictions.increment(entries.size());
+			entries.clear();
+		}
+	}
+
+	private void trim() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > maxSize && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+			sizeEvictions.increment();
+		}
+	}
+
+	private int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private double hitRatio() {
+		double total = hits.count() + misses.count();
+		return total == 0 ? 0 : hits.count() / total;
+	}
+
+	private static CachedUser copy(CachedUser user) {
+		return copy(user, user.getCompiledAuthorities());
+	}
+
+	private static CachedUser copy(UserDetails user, CompiledAuthorities compiledAuthorities) {
+		return new CachedUser(user.getUsername(), user.getPassword() == null ? "" : user.getPassword(),
+				user.isEnabled(), user.isAccountNonExpired(), user.isCredentialsNonExpired(), user.isAccountNonLocked(),
+				user.getAuthorities(), compiledAuthorities);
+	}
+
+	private record Entry(CachedUser user, long expiresAt) {
+	}
+
+	/**
+	 * User returned by the cache, carrying its authorities compiled into a
+	 * bitset.
+	 */
+	public static class CachedUser extends User {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient CompiledAuthorities compiledAuthorities;
+
+		private CachedUser(String username, String password, boolean enabled, boolean accountNonExpired,
+				boolean credentialsNonExpired, boolean accountNonLocked,
+				Collection<? extends GrantedAuthority> authorities, CompiledAuthorities compiledAuthorities) {
+			super(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked,
+					authorities);
+			this.compiledAuthorities = compiledAuthorities;
+		}
+
+		/**
+		 * @return The authorities of the user compiled into a bitset.
+		 */
+		public CompiledAuthorities getCompiledAuthorities() {
+			return compiledAuthorities;
+		}
+	}
+}
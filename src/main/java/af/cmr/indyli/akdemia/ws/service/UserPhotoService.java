@@ -0,0 +1,99 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service class managing the photos of the users in the {@link BlobStore}.
+ * {@code akdemia_user.PHOTO} holds a reference to the photo in the store, or,
+ * for older users, a path relative to
+ * {@code akdemia.application.blob-store.legacy-photo-dir}.
+ */
+@Component
+public class UserPhotoService {
+
+	private final JdbcTemplate jdbcTemplate;
+	private final BlobStore blobStore;
+	private final Path legacyPhotoDir;
+
+	/**
+	 * Constructor to initialize the UserPhotoService.
+	 *
+	 * @param jdbcTemplate   JdbcTemplate used to read and update the photos.
+	 * @param blobStore      BlobStore holding the photos.
+	 * @param legacyPhotoDir Directory the legacy paths are relative to, empty if
+	 *                       they cannot be migrated.
+	 */
+	public UserPhotoService(JdbcTemplate jdbcTemplate, BlobStore blobStore,
+			@Value("${akdemia.application.blob-store.legacy-photo-dir:}") String legacyPhotoDir) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.blobStore = blobStore;
+		this.legacyPhotoDir = legacyPhotoDir.isEmpty() ? null : Path.of(legacyPhotoDir).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Reads the reference to the photo of a user in the {@link BlobStore}.
+	 *
+	 * @param userId Identifier of the user.
+	 * @return The hash of the photo in the {@link BlobStore}, or null if the user
+	 *         has no photo in the store.
+	 */
+	public String getBlob(int userId) {
+		List<String> photos = jdbcTemplate.queryForList("SELECT PHOTO FROM akdemia_user WHERE ID = ?", String.class,
+				userId);
+		return photos.isEmpty() ? null : BlobStore.hashOf(photos.get(0));
+	}
+
+	/**
+	 * Stores a new photo for a user.
+	 *
+	 * @param userId  Identifier of the user.
+	 * @param content The image.
+	 * @return False if the user does not exist.
+	 * @throws IOException If the image cannot be stored.
+	 */
+	public boolean storePhoto(int userId, InputStream content) throws IOException {
+		String hash = blobStore.put(content);
+		return jdbcTemplate.update("UPDATE akdemia_user SET PHOTO = ?, UPDATE_DATE = ? WHERE ID = ?",
+				BlobStore.toReference(hash), LocalDateTime.now(), userId) == 1;
+	}
+
+	/**
+	 * Moves into the {@link BlobStore} the photos still referenced by a path,
+	 * when the file exists under the legacy photo directory.
+	 *
+	 * @return The number of photos moved.
+	 * @throws IOException If a photo cannot be stored.
+	 */
+	public int migrateAll() throws IOException {
+		if (legacyPhotoDir == null) {
+			return 0;
+		}
+		List<Map<String, Object>> users = jdbcTemplate.queryForList("SELECT ID, PHOTO FROM akdemia_user"
+				+ " WHERE PHOTO IS NOT NULL AND PHOTO <> '' AND PHOTO NOT LIKE '" + BlobStore.REFERENCE_PREFIX + "%'");
+		int migrated = 0;
+		for (Map<String, Object> user : users) {
+			String photo = (String) user.get("PHOTO");
+			Path file = legacyPhotoDir.resolve(photo.startsWith("/") ? photo.substring(1) : photo).normalize();
+			if (!file.startsWith(legacyPhotoDir) || !Files.isRegularFile(file)) {
+				continue;
+			}
+			String hash;
+			try (InputStream content = Files.newInputStream(file)) {
+				hash = blobStore.put(content);
+			}
+			migrated += jdbcTemplate.update("UPDATE akdemia_user SET PHOTO = ? WHERE ID = ? AND PHOTO = ?",
+					BlobStore.toReference(hash), user.get("ID"), photo);
+		}
+		return migrated;
+	}
+}
@@ -0,0 +1,92 @@
+package af.cmr.indyli.akdemia.ws.service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Immutable view of a JWT whose signature and expiration have already been
+ * checked by {@link JwtService#verifyToken(String)}. It is built once per
+ * request so the filter never has to parse the same token twice.
+ */
+public final class VerifiedToken {
+
+	private final String token;
+	private final Claims claims;
+
+	VerifiedToken(String token, Claims claims) {
+		this.token = token;
+		this.claims = claims;
+	}
+
+	/**
+	 * @return The raw compact token.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * @return The subject of the token, i.e. the user's email.
+	 */
+	public String getSubject() {
+		return claims.getSubject();
+	}
+
+	/**
+	 * @return The user identifier stored in the {@code id} claim, or null.
+	 */
+	public Integer getUserId() {
+		Object id = claims.get("id");
+		return id instanceof Number number ? number.intValue() : null;
+	}
+
+	/**
+	 * @return The roles stored in the {@code roles} claim, never null.
+	 */
+	public List<String> getRoles() {
+		Object roles = claims.get("roles");
+		if (!(roles instanceof List<?> list)) {
+			return Collections.emptyList();
+		}
+		return list.stream().map(String::valueOf).toList();
+	}
+
+	/**
+	 * @return The id ({@code jti}) of the token, or null for tokens issued
+	 *         before ids were introduced.
+	 */
+	public String getTokenId() {
+		return claims.getId();
+	}
+
+	/**
+	 * @return True if this is a refresh token rather than an access token.
+	 */
+	public boolean isRefreshToken() {
+		return JwtService.REFRESH_TOKEN_TYPE.equals(claims.get(JwtService.TYPE_CLAIM));
+	}
+
+	/**
+	 * @return The issue date of the token.
+	 */
+	public Date getIssuedAt() {
+		return claims.getIssuedAt();
+	}
+
+	/**
+	 * @return The expiration date of the token.
+	 */
+	public Date getExpiration() {
+		return claims.getExpiration();
+	}
+
+	/**
+	 * @return All the verified claims of the token.
+	 */
+	public Claims getClaims() {
+		return claims;
+	}
+}
@@ -3,4 +3,6 @@ package af.cmr.indyli.akdemia.ws.utils;
 public class AkdemiaUrlBase {
 	public static final String url = "*";
 	public static final int maxAge = 3600;
+	public static final String[] publicPaths = { "/users/generateToken", "/users/refreshToken", "/users/register",
+			"/users/resetpwd/**", "/swagger-ui/**", "/v3/api-docs/**", "/error/**" };
 }
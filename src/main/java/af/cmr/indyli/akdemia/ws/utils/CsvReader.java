@@ -0,0 +1,156 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a CSV stream (RFC 4180) one record at a time, so that only the record
+ * being read is held in memory whatever the size of the stream. Fields may be
+ * quoted, with {@code ""} escaping a quote, and quoted fields may span several
+ * lines. Both {@code \n} and {@code \r\n} end a record.
+ */
+public class CsvReader {
+
+	private static final int END = -1;
+
+	private final Reader reader;
+	private final char delimiter;
+	private final int maxRecordLength;
+	private int line = 1;
+	private int recordLine;
+	private int next = -2;
+
+	/**
+	 * Constructor to initialize the CsvReader.
+	 *
+	 * @param reader          The stream to read, preferably buffered.
+	 * @param delimiter       The character separating the fields.
+	 * @param maxRecordLength Maximum number of characters of a record, so that a
+	 *                        missing closing quote cannot swallow the stream.
+	 */
+	public CsvReader(Reader reader, char delimiter, int maxRecordLength) {
+		this.reader = reader;
+		this.delimiter = delimiter;
+		this.maxRecordLength = maxRecordLength;
+	}
+
+	/**
+	 * Reads the next record. Blank lines are skipped.
+	 *
+	 * @return The fields of the record, or null at the end of the stream.
+	 * @throws IOException          If the stream cannot be read.
+	 * @throws MalformedCsvException If the record is not valid CSV.
+	 */
+	public List<String> next() throws IOException {
+		int c = read();
+		while (c == '\r' || c == '\n') {
+			c = read();
+		}
+		if (c == END) {
+			return null;
+		}
+		recordLine = line;
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		int length = 0;
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		while (true) {
+			if (++length > maxRecordLength) {
+				throw new MalformedCsvException(recordLine, "Record longer than " + maxRecordLength + " characters");
+			}
+			if (quoted) {
+				if (c == END) {
+					throw new MalformedCsvException(recordLine, "Unterminated quoted field");
+				}
+				if (c == '"') {
+					c = read();
+					if (c != '"') {
+						quoted = false;
+						continue;
+					}
+				}
+				field.append((char) c);
+			} else if (c == delimiter) {
+				fields.add(field.toString());
+				field.setLength(0);
+				wasQuoted = false;
+			} else if (c == '\n' || c == '\r' || c == END) {
+				if (c == '\r') {
+					skipLineFeed();
+				}
+				fields.add(field.toString());
+				return fields;
+			} else if (c == '"' && field.isEmpty() && !wasQuoted) {
+				quoted = true;
+				wasQuoted = true;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	/**
+	 * @return The line of the stream, starting at 1, on which the last record
+	 *         read starts.
+	 */
+	public int getRecordLine() {
+		return recordLine;
+	}
+
+	private int read() throws IOException {
+		int c;
+		if (next != -2) {
+			c = next;
+			next = -2;
+		} else {
+			c = reader.read();
+		}
+		if (c == '\n') {
+			line++;
+		}
+		return c;
+	}
+
+	private void skipLineFeed() throws IOException {
+		int c = reader.read();
+		if (c == '\n') {
+			line++;
+		} else {
+			next = c;
+			line++;
+		}
+	}
+
+	/**
+	 * Thrown when a record is not valid CSV. The records read before it are
+	 * valid, those after it cannot be read.
+	 */
+	public static class MalformedCsvException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int line;
+
+		/**
+		 * Constructor to initialize the MalformedCsvException.
+		 *
+		 * @param line    The line on which the invalid record starts.
+		 * @param message The reason why the record is invalid.
+		 */
+		public MalformedCsvException(int line, String message) {
+			super(message);
+			this.line = line;
+		}
+
+		/**
+		 * @return The line on which the invalid record starts.
+		 */
+		public int getLine() {
+			return line;
+		}
+	}
+}
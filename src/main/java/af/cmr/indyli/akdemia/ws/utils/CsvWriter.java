@@ -0,0 +1,74 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a table as UTF-8 CSV (RFC 4180), with a byte order mark so that
+ * spreadsheets do not mistake the encoding.
+ */
+public class CsvWriter implements RowWriter {
+
+	private final Writer writer;
+	private final char delimiter;
+	private boolean started;
+
+	/**
+	 * Constructor to initialize the CsvWriter.
+	 *
+	 * @param out       The stream to write.
+	 * @param delimiter The character separating the fields.
+	 */
+	public CsvWriter(OutputStream out, char delimiter) {
+		this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		this.delimiter = delimiter;
+	}
+
+	@Override
+	public void write(List<?> values) throws IOException {
+		if (!started) {
+			writer.write('\uFEFF');
+			started = true;
+		}
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				writer.write(delimiter);
+			}
+			Object value = values.get(i);
+			if (value != null) {
+				writeField(value);
+			}
+		}
+		writer.write("\r\n");
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void finish() throws IOException {
+		writer.flush();
+	}
+
+	private void writeField(Object value) throws IOException {
+		String text = value.toString();
+		// a text starting like a formula would be evaluated by the spreadsheets
+		if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+			text = "'" + text;
+		}
+		if (text.indexOf(delimiter) < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0
+				&& text.indexOf('\r') < 0) {
+			writer.write(text);
+			return;
+		}
+		writer.write('"');
+		writer.write(text.replace("\"", "\"\""));
+		writer.write('"');
+	}
+}
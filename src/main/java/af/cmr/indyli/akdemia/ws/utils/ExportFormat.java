@@ -0,0 +1,64 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.io.OutputStream;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+
+/**
+ * The formats the collection resources can be exported to.
+ */
+public enum ExportFormat {
+
+	CSV("csv", MediaType.parseMediaType("text/csv;charset=UTF-8")),
+
+	XLSX("xlsx", MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+
+	private final String extension;
+	private final MediaType contentType;
+
+	ExportFormat(String extension, MediaType contentType) {
+		this.extension = extension;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @param extension The extension of the format, such as {@code csv}.
+	 * @return The format, or null if there is none with this extension.
+	 */
+	public static ExportFormat byExtension(String extension) {
+		for (ExportFormat format : values()) {
+			if (format.extension.equalsIgnoreCase(extension)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return The content type of the exported files.
+	 */
+	public MediaType getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @param name The name of the exported resource.
+	 * @return The Content-Disposition header value downloading the export as
+	 *         {@code <name>.<extension>}.
+	 */
+	public String attachment(String name) {
+		return ContentDisposition.attachment().filename(name + '.' + extension).build().toString();
+	}
+
+	/**
+	 * Opens a writer of this format.
+	 *
+	 * @param out  The stream to write.
+	 * @param name The name of the exported resource.
+	 * @return The writer.
+	 */
+	public RowWriter open(OutputStream out, String name) {
+		return this == XLSX ? new XlsxWriter(out, name) : new CsvWriter(out, ',');
+	}
+}
@@ -0,0 +1,54 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Recognizes the format of the images stored by the application from their
+ * first bytes.
+ */
+public final class ImageTypes {
+
+	/**
+	 * Number of bytes needed to recognize any of the supported formats.
+	 */
+	public static final int SIGNATURE_LENGTH = 12;
+
+	private static final MediaType IMAGE_WEBP = MediaType.parseMediaType("image/webp");
+
+	private ImageTypes() {
+	}
+
+	/**
+	 * @param bytes The image, or at least its first {@link #SIGNATURE_LENGTH}
+	 *              bytes.
+	 * @return The content type of the image, {@code application/octet-stream} if
+	 *         the format is not recognized.
+	 */
+	public static MediaType contentTypeOf(byte[] bytes) {
+		if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) {
+			return MediaType.IMAGE_JPEG;
+		}
+		if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G')) {
+			return MediaType.IMAGE_PNG;
+		}
+		if (startsWith(bytes, 0, 'G', 'I', 'F', '8')) {
+			return MediaType.IMAGE_GIF;
+		}
+		if (startsWith(bytes, 0, 'R', 'I', 'F', 'F') && startsWith(bytes, 8, 'W', 'E', 'B', 'P')) {
+			return IMAGE_WEBP;
+		}
+		return MediaType.APPLICATION_OCTET_STREAM;
+	}
+
+	private static boolean startsWith(byte[] bytes, int offset, int... prefix) {
+		if (bytes.length < offset + prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((bytes[offset + i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
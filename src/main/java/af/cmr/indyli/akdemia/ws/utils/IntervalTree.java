@@ -0,0 +1,215 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Balanced binary search tree of date intervals, ordered by start date then by
+ * identifier, where every node also knows the latest end date of its subtree.
+ * Intervals are added and removed in {@code O(log n)} and the {@code k}
+ * intervals overlapping a period are found in {@code O(log n + k)}, since a
+ * subtree ending before the period or starting after it is never walked.
+ * <p>
+ * Bounds are included. A missing start date is taken as the beginning of time
+ * and a missing end date as its end. Not thread-safe.
+ *
+ * @param <V> Type of the values held with the intervals.
+ */
+public final class IntervalTree<V> {
+
+	private Node<V> root;
+	private int size;
+
+	/**
+	 * Adds an interval. The identifier and the start date must not be held by
+	 * the tree already.
+	 *
+	 * @param id    Identifier of the interval.
+	 * @param start First day of the interval, or null.
+	 * @param end   Last day of the interval, or null.
+	 * @param value Value held with the interval.
+	 */
+	public void add(int id, LocalDate start, LocalDate end, V value) {
+		root = add(root, new Node<>(id, start == null ? LocalDate.MIN : start, end == null ? LocalDate.MAX : end,
+				value));
+		size++;
+	}
+
+	/**
+	 * Removes an interval.
+	 *
+	 * @param id    Identifier of the interval.
+	 * @param start First day of the interval, as it was added.
+	 * @return False if the tree held no such interval.
+	 */
+	public boolean remove(int id, LocalDate start) {
+		int before = size;
+		root = remove(root, id, start == null ? LocalDate.MIN : start);
+		return size < before;
+	}
+
+	/**
+	 * Lists the values of the intervals sharing at least one day with a period.
+	 *
+	 * @param from First day of the period, or null.
+	 * @param to   Last day of the period, or null.
+	 * @return The values, ordered by start date then identifier.
+	 */
+	public List<V> overlapping(LocalDate from, LocalDate to) {
+		List<V> values = new ArrayList<>();
+		collect(root, from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to, values);
+		return values;
+	}
+
+	/**
+	 * @return The number of intervals in the tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static <V> void collect(Node<V> node, LocalDate from, LocalDate to, List<V> values) {
+		// nothing below ends on or after the period
+		if (node == null || node.maxEnd.isBefore(from)) {
+			return;
+		}
+		collect(node.left, from, to, values);
+		// this node and its right subtree start after the period
+		if (node.start.isAfter(to)) {
+			return;
+		}
+		if (!node.end.isBefore(from)) {
+			values.add(node.value);
+		}
+		collect(node.right, from, to, values);
+	}
+
+	private static int compare(LocalDate start, int id, Node<?> node) {
+		int comparison = start.compareTo(node.start);
+		return comparison != 0 ? comparison : Integer.compare(id, node.id);
+	}
+
+	private static <V> Node<V> add(Node<V> node, Node<V> added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.start, added.id, node) < 0) {
+			node.left = add(node.left, added);
+		} else {
+			node.right = add(node.right, added);
+		}
+		return balance(node);
+	}
+
+	private Node<V> remove(Node<V> node, int id, LocalDate start) {
+		if (node == null) {
+			return null;
+		}
+		int comparison = compare(start, id, node);
+		if (comparison < 0) {
+			node.left = remove(node.left, id, start);
+		} else if (comparison > 0) {
+			node.right = remove(node.right, id, start);
+		} else {
+			size--;
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			Node<V> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = removeFirst(node.right);
+			successor.left = node.left;
+			node = successor;
+		}
+		return balance(node);
+	}
+
+	private static <V> Node<V> removeFirst(Node<V> node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = removeFirst(node.left);
+		return balance(node);
+	}
+
+	/**
+	 * Restores the AVL balance of a node whose subtrees differ in height by two
+	 * at most, and updates what it knows of them.
+	 */
+	private static <V> Node<V> balance(Node<V> node) {
+		node.update();
+		int factor = height(node.left) - height(node.right);
+		if (factor > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (factor < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private static <V> Node<V> rotateLeft(Node<V> node) {
+		Node<V> right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.update();
+		right.update();
+		return right;
+	}
+
+	private static <V> Node<V> rotateRight(Node<V> node) {
+		Node<V> left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.update();
+		left.update();
+		return left;
+	}
+
+	private static int height(Node<?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static final class Node<V> {
+
+		private final int id;
+		private final LocalDate start;
+		private final LocalDate end;
+		private final V value;
+		private LocalDate maxEnd;
+		private int height = 1;
+		private Node<V> left;
+		private Node<V> right;
+
+		private Node(int id, LocalDate start, LocalDate end, V value) {
+			this.id = id;
+			this.start = start;
+			this.end = end;
+			this.value = value;
+			this.maxEnd = end;
+		}
+
+		private void update() {
+			height = 1 + Math.max(height(left), height(right));
+			maxEnd = end;
+			if (left != null && left.maxEnd.isAfter(maxEnd)) {
+				maxEnd = left.maxEnd;
+			}
+			if (right != null && right.maxEnd.isAfter(maxEnd)) {
+				maxEnd = right.maxEnd;
+			}
+		}
+	}
+}
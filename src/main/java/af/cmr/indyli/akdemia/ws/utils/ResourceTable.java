@@ -0,0 +1,177 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Describes how a collection resource of the API is read directly from its
+ * tables: the FROM clause, the exposed fields with their SQL expressions, and
+ * the columns used for ordering and filtering. The main table is always aliased {@code t}.
+ */
+public final class ResourceTable {
+
+	private static final Pattern TABLE = Pattern.compile("\\bakdemia_\\w+");
+
+	private final String name;
+	private final String from;
+	private final Set<String> tables = new LinkedHashSet<>();
+	private final Map<String, String> fields = new LinkedHashMap<>();
+	private final Map<String, String> sortKeys = new LinkedHashMap<>();
+	private String creationDate;
+	private String updateDate;
+	private String period;
+	private String companyCondition;
+
+	private ResourceTable(String name, String from) {
+		this.name = name;
+		this.from = from;
+		this.fields.put("id", "t.ID");
+		Matcher matcher = TABLE.matcher(from);
+		while (matcher.find()) {
+			this.tables.add(matcher.group());
+		}
+	}
+
+	/**
+	 * Starts the description of a resource.
+	 *
+	 * @param name Name of the resource, as in its URL.
+	 * @param from FROM clause, the main table being aliased {@code t}.
+	 * @return The resource description, exposing {@code t.ID} as {@code id}.
+	 */
+	static ResourceTable of(String name, String from) {
+		return new ResourceTable(name, from);
+	}
+
+	/**
+	 * Adds an exposed field.
+	 *
+	 * @param field      Name of the field in the responses.
+	 * @param expression SQL expression of the field.
+	 * @return This resource description.
+	 */
+	ResourceTable field(String field, String expression) {
+		fields.put(field, expression);
+		return this;
+	}
+
+	/**
+	 * Adds the {@code creationDate} and {@code updateDate} fields.
+	 *
+	 * @param alias Alias of the table holding the CREATION_DATE and UPDATE_DATE columns.
+	 * @return This resource description.
+	 */
+	ResourceTable dates(String alias) {
+		creationDate = alias + ".CREATION_DATE";
+		updateDate = alias + ".UPDATE_DATE";
+		fields.put("creationDate", creationDate);
+		fields.put("updateDate", updateDate);
+		return sortable("creationDate");
+	}
+
+	/**
+	 * Lets the pages of the resource be ordered on a field, besides the ID. The
+	 * column should lead an index of its table ending with the ID.
+	 *
+	 * @param field Name of an exposed field.
+	 * @return This resource description.
+	 */
+	ResourceTable sortable(String field) {
+		sortKeys.put(field, fields.get(field));
+		return this;
+	}
+
+	/**
+	 * Sets the date the exports and searches of the resource are filtered on.
+	 *
+	 * @param column SQL expression of the date.
+	 * @return This resource description.
+	 */
+	ResourceTable period(String column) {
+		period = column;
+		return this;
+	}
+
+	/**
+	 * Sets how the rows of the resource are filtered on a company.
+	 *
+	 * @param condition SQL condition with a single parameter, the identifier of
+	 *                  the company.
+	 * @return This resource description.
+	 */
+	ResourceTable company(String condition) {
+		companyCondition = condition;
+		return this;
+	}
+
+	/**
+	 * @return The name of the resource.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The FROM clause of the resource.
+	 */
+	public String getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return The names of the tables read for the resource.
+	 */
+	public Set<String> getTables() {
+		return Collections.unmodifiableSet(tables);
+	}
+
+	/**
+	 * @return The exposed fields, by name, with their SQL expression.
+	 */
+	public Map<String, String> getFields() {
+		return Collections.unmodifiableMap(fields);
+	}
+
+	/**
+	 * @return The SQL expression of the creation date, or null if the resource has none.
+	 */
+	public String getCreationDate() {
+		return creationDate;
+	}
+
+	/**
+	 * @return The SQL expression of the update date, or null if the resource has none.
+	 */
+	public String getUpdateDate() {
+		return updateDate;
+	}
+
+	/**
+	 * @return The fields the pages may be ordered on besides the ID, by name,
+	 *         with their SQL expression.
+	 */
+	public Map<String, String> getSortKeys() {
+		return Collections.unmodifiableMap(sortKeys);
+	}
+
+	/**
+	 * @return The SQL expression of the date the exports and searches are filtered on, or null
+	 *         if they cannot be filtered on a period.
+	 */
+	public String getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @return The SQL condition selecting the rows of a company, or null if the
+	 *         resource cannot be filtered on a company.
+	 */
+	public String getCompanyCondition() {
+		return companyCondition;
+	}
+}
@@ -0,0 +1,137 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Descriptions of the collection resources read directly from the database.
+ * Binary and secret columns ({@code LOGO}, {@code PASSWORD}) are never exposed.
+ */
+public final class ResourceTables {
+
+	private static final String USER_JOIN = " JOIN akdemia_user u ON u.ID = t.ID";
+	private static final String SESSION_JOIN = " JOIN akdemia_session s ON s.ID = t.ID";
+	private static final String COMPANY = "t.ID_AKDEMIA_COMPANY = ?";
+	private static final String EMPLOYEE_COMPANY = "EXISTS (SELECT 1 FROM akdemia_employee e"
+			+ " WHERE e.ID = t.ID_AKDEMIA_EMPLOYEE AND e.ID_AKDEMIA_COMPANY = ?)";
+
+	public static final ResourceTable COMPANIES = user(ResourceTable.of("companies", "akdemia_company t" + USER_JOIN)
+			.field("name", "t.NAME").field("activity", "t.ACTIVITY"));
+
+	public static final ResourceTable EMPLOYEES = user(ResourceTable.of("employees", "akdemia_employee t" + USER_JOIN)
+			.field("firstname", "t.FIRSTNAME").field("lastname", "t.LASTNAME").field("gender", "t.GENDER")
+			.field("highestDiploma", "t.HIGHEST_DIPLOMA").field("birthDate", "t.BIRTH_DATE")
+			.field("companyId", "t.ID_AKDEMIA_COMPANY")).company(COMPANY);
+
+	public static final ResourceTable EMPLOYEE_SUBSCRIPTIONS = ResourceTable
+			.of("employeesubscriptions", "akdemia_employee_souscription t").field("status", "t.STATUS")
+			.field("intraSessionId", "t.ID_AKDEMIA_INTRA_SESSION").field("employeeId", "t.ID_AKDEMIA_EMPLOYEE")
+			.dates("t").period("t.CREATION_DATE").company(EMPLOYEE_COMPANY);
+
+	public static final ResourceTable EVALUATIONS = ResourceTable.of("evaluations", "akdemia_evaluation t")
+			.field("sessionScore", "t.SESSION_SCORE").field("trainerScore", "t.TRAINER_SCORE")
+			.field("sessionId", "t.ID_AKDEMIA_SESSION").field("employeeId", "t.ID_AKDEMIA_EMPLOYEE")
+			.field("particularId", "t.ID_AKDEMIA_PARTICULAR").dates("t").period("t.CREATION_DATE")
+			.company(EMPLOYEE_COMPANY);
+
+	public static final ResourceTable INTER_SESSIONS = session(
+			ResourceTable.of("intersessions", "akdemia_inter_session t" + SESSION_JOIN)
+					.field("minParticipants", "t.MIN_PARTICIPANTS"));
+
+	public static final ResourceTable INTRA_SESSIONS = session(
+			ResourceTable.of("intrasessions", "akdemia_intra_session t" + SESSION_JOIN)
+					.field("companyId", "t.ID_AKDEMIA_COMPANY")).company(COMPANY);
+
+	public static final ResourceTable MANAGERS = user(ResourceTable.of("managers", "akdemia_manager t" + USER_JOIN)
+			.field("firstname", "t.FIRSTNAME").field("lastname", "t.LASTNAME").field("gender", "t.GENDER"));
+
+	public static final ResourceTable PARTICULARS = user(ResourceTable
+			.of("particulars", "akdemia_particular t" + USER_JOIN).field("firstname", "t.FIRSTNAME")
+			.field("lastname", "t.LASTNAME").field("gender", "t.GENDER").field("activity", "t.ACTIVITY")
+			.field("highestDiploma", "t.HIGHEST_DIPLOMA").field("birthDate", "t.BIRTH_DATE"));
+
+	public static final ResourceTable PARTICULAR_SUBSCRIPTIONS = ResourceTable
+			.of("particularsubscriptions", "akdemia_particular_souscription t").field("status", "t.STATUS")
+			.field("interSessionId", "t.ID_AKDEMIA_INTER_SESSION").field("particularId", "t.ID_AKDEMIA_PARTICULAR")
+			.dates("t").period("t.CREATION_DATE");
+
+	public static final ResourceTable PLANIFICATIONS = ResourceTable.of("planifications", "akdemia_planification t")
+			.field("startDate", "t.START_DATE").field("endDate", "t.END_DATE")
+			.field("companyId", "t.ID_AKDEMIA_COMPANY").field("trainingId", "t.ID_AKDEMIA_TRAINING").dates("t")
+			.company(COMPANY);
+
+	public static final ResourceTable REQUIREMENTS = ResourceTable.of("requirements", "akdemia_requirement t")
+			.field("name", "t.NAME").field("description", "t.DESCRIPTION").field("link", "t.LINK").dates("t");
+
+	public static final ResourceTable ROLES = ResourceTable.of("roles", "akdemia_role t")
+			.field("roleName", "t.ROLE_NAME").dates("t");
+
+	public static final ResourceTable SESSIONS = session(ResourceTable.of("sessions", "akdemia_session t"))
+			.company("EXISTS (SELECT 1 FROM akdemia_intra_session i"
+					+ " WHERE i.ID = t.ID AND i.ID_AKDEMIA_COMPANY = ?)");
+
+	public static final ResourceTable SUB_THEMES = ResourceTable.of("subthemes", "akdemia_sub_theme t")
+			.field("subthemeTitle", "t.SUBTHEME_TITLE").field("description", "t.DESCRIPTION").dates("t");
+
+	public static final ResourceTable TESTS = ResourceTable.of("tests", "akdemia_test t").field("name", "t.NAME")
+			.field("description", "t.DESCRITION").dates("t");
+
+	public static final ResourceTable THEMES = ResourceTable.of("themes", "akdemia_theme t")
+			.field("themeTitle", "t.THEME_TITLE").field("description", "t.DESCRIPTION").dates("t");
+
+	public static final ResourceTable TRAINERS = user(ResourceTable.of("trainers", "akdemia_trainer t" + USER_JOIN)
+			.field("firstname", "t.FIRSTNAME").field("lastname", "t.LASTNAME").field("gender", "t.GENDER")
+			.field("activity", "t.ACTIVITY").field("cvLink", "t.CV_LINK")
+			.field("validationTestId", "t.ID_AKDEMIA_VALIDATION_TEST"));
+
+	public static final ResourceTable TRAININGS = ResourceTable.of("trainings", "akdemia_training t")
+			.field("title", "t.TITLE").field("description", "t.DESCRIPTION").field("trainingPrice", "t.TRAINING_PRICE")
+			.field("requirementId", "t.ID_AKDEMIA_REQUIREMENT").dates("t");
+
+	public static final ResourceTable USERS = user(ResourceTable.of("users", "akdemia_user t").field("login", "t.LOGIN"),
+			"t");
+
+	public static final ResourceTable VALIDATION_TESTS = ResourceTable.of("validationtests", "akdemia_validation_test t")
+			.field("testDate", "t.TEST_DATE").field("score", "t.SCORE").field("trainingId", "t.ID_AKDEMIA_TRAINING")
+			.field("testId", "t.ID_AKDEMIA_TEST").dates("t");
+
+	private static final Map<String, ResourceTable> BY_NAME = Stream
+			.of(COMPANIES, EMPLOYEES, EMPLOYEE_SUBSCRIPTIONS, EVALUATIONS, INTER_SESSIONS, INTRA_SESSIONS, MANAGERS,
+					PARTICULARS, PARTICULAR_SUBSCRIPTIONS, PLANIFICATIONS, REQUIREMENTS, ROLES, SESSIONS, SUB_THEMES,
+					TESTS, THEMES, TRAINERS, TRAININGS, USERS, VALIDATION_TESTS)
+			.collect(Collectors.toUnmodifiableMap(ResourceTable::getName, Function.identity()));
+
+	private ResourceTables() {
+	}
+
+	/**
+	 * Finds a resource by the name it has in the URLs.
+	 *
+	 * @param name Name of the resource.
+	 * @return The resource description, or null if there is none.
+	 */
+	public static ResourceTable byName(String name) {
+		return BY_NAME.get(name);
+	}
+
+	private static ResourceTable user(ResourceTable table) {
+		return user(table, "u");
+	}
+
+	private static ResourceTable user(ResourceTable table, String alias) {
+		return table.field("email", alias + ".EMAIL").field("phone", alias + ".PHONE")
+				.field("address", alias + ".ADDRESS").field("photo", alias + ".PHOTO").dates(alias);
+	}
+
+	private static ResourceTable session(ResourceTable table) {
+		String alias = table.getFrom().startsWith("akdemia_session ") ? "t" : "s";
+		return table.field("code", alias + ".CODE").field("duration", alias + ".DURATION")
+				.field("price", alias + ".PRICE").field("description", alias + ".DESCRIPTION")
+				.field("status", alias + ".STATUS").field("date", alias + ".DATE")
+				.field("location", alias + ".LACATION").field("sessionScore", alias + ".SESSION_SCORE")
+				.field("trainerId", alias + ".ID_AKDEMIA_TRAINER").field("trainingId", alias + ".ID_AKDEMIA_TRAINING")
+				.dates(alias).sortable("date").period(alias + ".DATE");
+	}
+}
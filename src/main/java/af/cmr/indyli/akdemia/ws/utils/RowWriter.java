@@ -0,0 +1,33 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a table row by row to a stream, without holding the rows already
+ * written.
+ */
+public interface RowWriter {
+
+	/**
+	 * Writes a row.
+	 *
+	 * @param values The values of the row, strings, numbers, dates or nulls.
+	 * @throws IOException If the stream cannot be written.
+	 */
+	void write(List<?> values) throws IOException;
+
+	/**
+	 * Sends the rows written so far to the stream.
+	 *
+	 * @throws IOException If the stream cannot be written.
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * Writes what ends the table and flushes the stream, which is left open.
+	 *
+	 * @throws IOException If the stream cannot be written.
+	 */
+	void finish() throws IOException;
+}
@@ -0,0 +1,42 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+
+/**
+ * Helpers shared by the services building SQL queries with the JdbcTemplate
+ * and reading the values of their rows.
+ */
+public final class SqlValues {
+
+	private SqlValues() {
+	}
+
+	/**
+	 * Builds the placeholders of an {@code IN} list.
+	 *
+	 * @param count Number of values of the list, at least one.
+	 * @return {@code count} comma separated {@code ?}.
+	 */
+	public static String placeholders(int count) {
+		return String.join(", ", Collections.nCopies(count, "?"));
+	}
+
+	/**
+	 * Reads a DATE column, whether the driver returned a {@link Date} or a
+	 * {@link LocalDate}.
+	 *
+	 * @param date Value of the column.
+	 * @return The date, or null if the value is null or not a date.
+	 */
+	public static LocalDate localDate(Object date) {
+		if (date instanceof LocalDate localDate) {
+			return localDate;
+		}
+		if (date instanceof Date sqlDate) {
+			return sqlDate.toLocalDate();
+		}
+		return null;
+	}
+}
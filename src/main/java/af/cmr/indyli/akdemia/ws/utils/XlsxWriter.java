@@ -0,0 +1,152 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a table as an XLSX workbook holding a single sheet.
+ * <p>
+ * The package parts are written first and the sheet is then deflated row by
+ * row into the ZIP stream, with inline strings rather than a shared strings
+ * table, so the memory used does not depend on the number of rows.
+ */
+public class XlsxWriter implements RowWriter {
+
+	private static final int MAX_CELL_LENGTH = 32767;
+
+	private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+			+ "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+			+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+			+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+			+ "<Override PartName=\"/xl/workbook.xml\""
+			+ " ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+			+ "<Override PartName=\"/xl/worksheets/sheet1.xml\""
+			+ " ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+			+ "</Types>";
+
+	private static final String RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+			+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+			+ "<Relationship Id=\"rId1\""
+			+ " Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\""
+			+ " Target=\"xl/workbook.xml\"/></Relationships>";
+
+	private static final String WORKBOOK_RELATIONSHIPS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+			+ "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+			+ "<Relationship Id=\"rId1\""
+			+ " Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\""
+			+ " Target=\"worksheets/sheet1.xml\"/></Relationships>";
+
+	private final ZipOutputStream zip;
+	private final Writer writer;
+	private final String sheetName;
+	private boolean started;
+
+	/**
+	 * Constructor to initialize the XlsxWriter.
+	 *
+	 * @param out       The stream to write.
+	 * @param sheetName The name of the sheet.
+	 */
+	public XlsxWriter(OutputStream out, String sheetName) {
+		this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+		this.writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+		this.sheetName = sheetName;
+	}
+
+	@Override
+	public void write(List<?> values) throws IOException {
+		start();
+		writer.write("<row>");
+		for (Object value : values) {
+			if (value == null) {
+				writer.write("<c/>");
+			} else if (value instanceof Number number) {
+				writer.write("<c><v>");
+				writer.write(number.toString());
+				writer.write("</v></c>");
+			} else {
+				String text = value.toString();
+				writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+				writeEscaped(text.length() > MAX_CELL_LENGTH ? text.substring(0, MAX_CELL_LENGTH) : text);
+				writer.write("</t></is></c>");
+			}
+		}
+		writer.write("</row>");
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void finish() throws IOException {
+		start();
+		writer.write("</sheetData></worksheet>");
+		writer.flush();
+		zip.closeEntry();
+		zip.finish();
+		zip.flush();
+	}
+
+	private void start() throws IOException {
+		if (started) {
+			return;
+		}
+		started = true;
+		part("[Content_Types].xml", CONTENT_TYPES);
+		part("_rels/.rels", RELATIONSHIPS);
+		part("xl/_rels/workbook.xml.rels", WORKBOOK_RELATIONSHIPS);
+		StringBuilder workbook = new StringBuilder(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+						+ "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+						+ " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+						+ "<sheets><sheet name=\"");
+		escape(sheetName, workbook);
+		part("xl/workbook.xml", workbook.append("\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>").toString());
+
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+				+ "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+	}
+
+	private void part(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		writer.write(content);
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	private void writeEscaped(String text) throws IOException {
+		StringBuilder escaped = new StringBuilder(text.length() + 16);
+		escape(text, escaped);
+		writer.write(escaped.toString());
+	}
+
+	/**
+	 * Escapes a text for XML, dropping the control characters XML 1.0 does not
+	 * allow.
+	 */
+	private static void escape(String text, StringBuilder out) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&' -> out.append("&amp;");
+			case '<' -> out.append("&lt;");
+			case '>' -> out.append("&gt;");
+			case '"' -> out.append("&quot;");
+			default -> {
+				if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+					out.append(c);
+				}
+			}
+			}
+		}
+	}
+}
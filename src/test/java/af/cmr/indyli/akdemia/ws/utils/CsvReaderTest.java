@@ -0,0 +1,104 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import af.cmr.indyli.akdemia.ws.utils.CsvReader.MalformedCsvException;
+
+/**
+ * Tests of {@link CsvReader}.
+ */
+class CsvReaderTest {
+
+	@Test
+	void readsSimpleRecords() throws IOException {
+		CsvReader reader = reader("email;firstname\na@b.cm;Jean\n");
+
+		assertEquals(List.of("email", "firstname"), reader.next());
+		assertEquals(1, reader.getRecordLine());
+		assertEquals(List.of("a@b.cm", "Jean"), reader.next());
+		assertEquals(2, reader.getRecordLine());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void keepsEmptyFields() throws IOException {
+		CsvReader reader = reader(";a;;\n\"\";b");
+
+		assertEquals(List.of("", "a", "", ""), reader.next());
+		assertEquals(List.of("", "b"), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void unescapesDoubledQuotes() throws IOException {
+		CsvReader reader = reader("\"say \"\"hello\"\"\";\"a;b\";\"\"\"\"\n");
+
+		assertEquals(List.of("say \"hello\"", "a;b", "\""), reader.next());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void keepsNewlinesOfQuotedFields() throws IOException {
+		CsvReader reader = reader("1;\"first\nsecond\r\nthird\"\n2;x\n");
+
+		assertEquals(List.of("1", "first\nsecond\r\nthird"), reader.next());
+		assertEquals(1, reader.getRecordLine());
+		assertEquals(List.of("2", "x"), reader.next());
+		assertEquals(4, reader.getRecordLine());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void endsRecordsOnCrLf() throws IOException {
+		CsvReader reader = reader("a;b\r\nc;d\r\n\r\ne;f");
+
+		assertEquals(List.of("a", "b"), reader.next());
+		assertEquals(1, reader.getRecordLine());
+		assertEquals(List.of("c", "d"), reader.next());
+		assertEquals(2, reader.getRecordLine());
+		assertEquals(List.of("e", "f"), reader.next());
+		assertEquals(4, reader.getRecordLine());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void skipsBlankLinesButCountsThem() throws IOException {
+		CsvReader reader = reader("\n\na\n\n\nb\n\n");
+
+		assertEquals(List.of("a"), reader.next());
+		assertEquals(3, reader.getRecordLine());
+		assertEquals(List.of("b"), reader.next());
+		assertEquals(6, reader.getRecordLine());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void rejectsUnterminatedQuotedFields() throws IOException {
+		CsvReader reader = reader("a\n\"b\nc");
+
+		assertEquals(List.of("a"), reader.next());
+		MalformedCsvException e = assertThrows(MalformedCsvException.class, reader::next);
+		assertEquals(2, e.getLine());
+	}
+
+	@Test
+	void rejectsRecordsLongerThanTheLimit() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("abc\n\"abcdefghijkl\"\n"), ';', 10);
+
+		assertEquals(List.of("abc"), reader.next());
+		MalformedCsvException e = assertThrows(MalformedCsvException.class, reader::next);
+		assertEquals(2, e.getLine());
+	}
+
+	private static CsvReader reader(String content) {
+		return new CsvReader(new StringReader(content), ';', 1000);
+	}
+}
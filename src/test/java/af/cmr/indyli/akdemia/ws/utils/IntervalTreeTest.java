@@ -0,0 +1,135 @@
+package af.cmr.indyli.akdemia.ws.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link IntervalTree}, checked against a linear scan of the same
+ * intervals.
+ */
+class IntervalTreeTest {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+	@Test
+	void boundsAreIncluded() {
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		tree.add(1, day(10), day(20), 1);
+
+		assertEquals(List.of(1), tree.overlapping(day(20), day(30)));
+		assertEquals(List.of(1), tree.overlapping(day(0), day(10)));
+		assertEquals(List.of(), tree.overlapping(day(21), day(30)));
+		assertEquals(List.of(), tree.overlapping(day(0), day(9)));
+	}
+
+	@Test
+	void missingDatesAreUnbounded() {
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		tree.add(1, null, day(5), 1);
+		tree.add(2, day(50), null, 2);
+		tree.add(3, null, null, 3);
+
+		assertEquals(List.of(1, 3), tree.overlapping(day(-1000), day(0)));
+		assertEquals(List.of(3, 2), tree.overlapping(day(1000), day(2000)));
+		assertEquals(List.of(1, 3, 2), tree.overlapping(null, null));
+		assertEquals(List.of(1, 3), tree.overlapping(null, day(10)));
+		assertTrue(tree.remove(1, null));
+		assertEquals(List.of(3), tree.overlapping(null, day(10)));
+	}
+
+	@Test
+	void equalStartDatesAreOrderedById() {
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		for (int id : new int[] { 5, 3, 9, 1, 7 }) {
+			tree.add(id, day(1), day(id), id);
+		}
+
+		assertEquals(List.of(1, 3, 5, 7, 9), tree.overlapping(day(1), day(1)));
+		assertEquals(List.of(5, 7, 9), tree.overlapping(day(5), day(6)));
+		assertTrue(tree.remove(5, day(1)));
+		assertEquals(List.of(1, 3, 7, 9), tree.overlapping(null, null));
+	}
+
+	@Test
+	void removeNeedsTheIdAndTheStart() {
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		tree.add(1, day(1), day(2), 1);
+
+		assertFalse(tree.remove(2, day(1)));
+		assertFalse(tree.remove(1, day(2)));
+		assertFalse(tree.remove(1, null));
+		assertEquals(1, tree.size());
+		assertTrue(tree.remove(1, day(1)));
+		assertFalse(tree.remove(1, day(1)));
+		assertEquals(0, tree.size());
+	}
+
+	@Test
+	void randomAddsAndRemovesMatchALinearScan() {
+		Random random = new Random(42);
+		IntervalTree<Integer> tree = new IntervalTree<>();
+		Map<Integer, Interval> intervals = new HashMap<>();
+		int nextId = 0;
+		for (int operation = 0; operation < 5000; operation++) {
+			if (intervals.isEmpty() || random.nextInt(10) < 6) {
+				int id = nextId++;
+				// few distinct days, so that many intervals share their start date
+				LocalDate start = random.nextInt(10) == 0 ? null : day(random.nextInt(60));
+				LocalDate end = random.nextInt(10) == 0 ? null
+						: (start == null ? day(random.nextInt(60)) : start.plusDays(random.nextInt(15)));
+				tree.add(id, start, end, id);
+				intervals.put(id, new Interval(id, start, end));
+			} else if (random.nextInt(10) == 0) {
+				assertFalse(tree.remove(nextId, day(random.nextInt(60))));
+			} else {
+				List<Integer> ids = new ArrayList<>(intervals.keySet());
+				Interval removed = intervals.remove(ids.get(random.nextInt(ids.size())));
+				assertTrue(tree.remove(removed.id(), removed.start()));
+			}
+			assertEquals(intervals.size(), tree.size());
+
+			for (int query = 0; query < 3; query++) {
+				LocalDate from = random.nextInt(8) == 0 ? null : day(random.nextInt(70) - 5);
+				LocalDate to = random.nextInt(8) == 0 ? null
+						: (from == null ? day(random.nextInt(70) - 5) : from.plusDays(random.nextInt(10)));
+				assertEquals(overlapping(intervals, from, to), tree.overlapping(from, to),
+						"overlapping(" + from + ", " + to + ") after " + operation + " operations");
+			}
+		}
+	}
+
+	private static List<Integer> overlapping(Map<Integer, Interval> intervals, LocalDate from, LocalDate to) {
+		LocalDate first = from == null ? LocalDate.MIN : from;
+		LocalDate last = to == null ? LocalDate.MAX : to;
+		return intervals.values().stream()
+				.filter(interval -> !interval.startOrMin().isAfter(last) && !interval.endOrMax().isBefore(first))
+				.sorted(Comparator.comparing(Interval::startOrMin).thenComparing(Interval::id)).map(Interval::id)
+				.toList();
+	}
+
+	private static LocalDate day(int offset) {
+		return DAY.plusDays(offset);
+	}
+
+	private record Interval(int id, LocalDate start, LocalDate end) {
+
+		LocalDate startOrMin() {
+			return start == null ? LocalDate.MIN : start;
+		}
+
+		LocalDate endOrMax() {
+			return end == null ? LocalDate.MAX : end;
+		}
+	}
+}